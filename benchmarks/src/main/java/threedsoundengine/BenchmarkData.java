@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Random;
+
+//Deterministic test signals shared by the benchmarks
+final class BenchmarkData {
+
+	private BenchmarkData() {
+	}
+
+	static double[][] noise(int channels, int frames, double amplitude, Random random) {
+		double[][] buffer = new double[channels][frames];
+		for (int i = 0; i < channels; i++) {
+			for (int j = 0; j < frames; j++) {
+				buffer[i][j] = (random.nextDouble() * 2.0 - 1.0) * amplitude;
+			}
+		}
+		return buffer;
+	}
+}
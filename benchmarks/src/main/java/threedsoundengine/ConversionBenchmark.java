@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.sound.sampled.AudioFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Byte <-> double block conversion through PcmCodec. The sample rate does not affect these loops, so it is not a parameter
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+	@Param({"64", "256", "1024", "4096"})
+	public int bufferSize;
+
+	@Param({"1", "2"})
+	public int channels;
+
+	@Param({"16", "24"})
+	public int bitsPerSample;
+
+	@Param({"false", "true"})
+	public boolean dither;
+
+	private PcmCodec codec;
+	private double[][] samples;
+	private byte[] bytes;
+
+	@Setup
+	public void setup() {
+		AudioFormat format = new AudioFormat(44100, bitsPerSample, channels, true, false);
+		codec = new PcmCodec(format);
+		codec.setDither(dither);
+		samples = BenchmarkData.noise(channels, bufferSize, codec.getFullScale() * 0.5, new Random(1));
+		bytes = new byte[bufferSize * codec.getFrameSize()];
+		codec.encode(samples, 0, bytes, 0, bufferSize);
+	}
+
+	@Benchmark
+	public double[][] decode() {
+		codec.decode(bytes, 0, samples, 0, bufferSize);
+		return samples;
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		codec.encode(samples, 0, bytes, 0, bufferSize);
+		return bytes;
+	}
+}
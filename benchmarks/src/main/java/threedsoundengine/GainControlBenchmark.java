@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//StreamAudio.automaticGainControl when the block is within range (scan only) and when it has to be scaled down.
+//The clipping case refills the block before every call, so keep to the larger buffer sizes when comparing it
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GainControlBenchmark {
+
+	@Param({"64", "256", "1024", "4096"})
+	public int bufferSize;
+
+	@Param({"1", "2"})
+	public int channels;
+
+	private double[][] inRange, clipping, loud;
+
+	@Setup
+	public void setup() {
+		inRange = BenchmarkData.noise(channels, bufferSize, 10000.0, new Random(1));
+		loud = BenchmarkData.noise(channels, bufferSize, 60000.0, new Random(2));
+		clipping = new double[channels][bufferSize];
+	}
+
+	@Setup(Level.Invocation)
+	public void refill() {
+		for (int i = 0; i < channels; i++) {
+			System.arraycopy(loud[i], 0, clipping[i], 0, bufferSize);
+		}
+	}
+
+	@Benchmark
+	public double[][] scanOnly() {
+		return StreamAudio.automaticGainControl(inRange, 32768.0);
+	}
+
+	@Benchmark
+	public double[][] attenuate() {
+		return StreamAudio.automaticGainControl(clipping, 32768.0);
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Time per block of HRIR convolution for a still source and for one that changes HRIR every block (crossfading)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HrirRendererBenchmark {
+
+	@Param({"256", "1024"})
+	public int bufferSize;
+
+	@Param({"128", "512", "4096"})
+	public int irLength;
+
+	private HrirRenderer renderer;
+	private double[][] input;
+	private boolean bSide;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		double[] azimuths = {0, 90};
+		double[] elevations = {0, 0};
+		double[][][] irs = new double[2][2][irLength];
+		for (int n = 0; n < 2; n++) {
+			for (int i = 0; i < 2; i++) {
+				for (int j = 0; j < irLength; j++) {
+					irs[n][i][j] = random.nextGaussian() * Math.exp(-j / (irLength / 4.0));
+				}
+			}
+		}
+		renderer = new HrirRenderer(new HrirSet(48000, azimuths, elevations, irs), 48000, bufferSize);
+		input = BenchmarkData.noise(2, bufferSize, 10000.0, new Random(2));
+	}
+
+	@Benchmark
+	public double[][] still() {
+		return renderer.processDirection(input, Math.PI / 2, Math.PI / 2);
+	}
+
+	@Benchmark
+	public double[][] crossfade() {
+		bSide = !bSide;
+		return renderer.processDirection(input, bSide ? 0.0 : Math.PI / 2, Math.PI / 2);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Scalar against Vector API kernels on one channel of a block. The vector case needs the engine built with the
+//vector profile (automatic on JDK 21+); the fork adds the incubator module itself
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class KernelBenchmark {
+
+	@Param({"64", "256", "1024", "4096"})
+	public int bufferSize;
+
+	@Param({"scalar", "vector"})
+	public String kernel;
+
+	private SampleKernels kernels;
+	private double[] input, pan, output;
+	private int[] quantised;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		if (kernel.equals("vector")) {
+			kernels = (SampleKernels)Class.forName("threedsoundengine.VectorKernels").getDeclaredConstructor().newInstance();
+		}
+		else {
+			kernels = new ScalarKernels();
+		}
+		input = BenchmarkData.noise(1, bufferSize, 40000.0, new Random(1))[0];
+		pan = BenchmarkData.noise(1, bufferSize, 1.0, new Random(2))[0];
+		output = new double[bufferSize];
+		quantised = new int[bufferSize];
+	}
+
+	@Benchmark
+	public double[] scale() {
+		kernels.scale(input, output, bufferSize, 0.7);
+		return output;
+	}
+
+	@Benchmark
+	public double maxAbs() {
+		return kernels.maxAbs(input, bufferSize);
+	}
+
+	@Benchmark
+	public double[] multiply() {
+		kernels.multiply(input, 0, pan, 0, output, 0, bufferSize);
+		return output;
+	}
+
+	@Benchmark
+	public int[] quantise() {
+		kernels.quantise(input, 0, quantised, bufferSize, -32768.0, 32767.0);
+		return quantised;
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Time to convert one stereo block per quality tier, for the common conversions to and from a 48kHz engine
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResamplerBenchmark {
+
+	@Param({"1024"})
+	public int bufferSize;
+
+	@Param({"FAST", "MEDIUM", "BEST"})
+	public PolyphaseResampler.Quality quality;
+
+	@Param({"44100:48000", "48000:44100", "96000:48000"})
+	public String rates;
+
+	private PolyphaseResampler resampler;
+	private double[][] input;
+	private double[][] output;
+
+	@Setup
+	public void setup() {
+		String[] fields = rates.split(":");
+		resampler = new PolyphaseResampler(2, Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), quality);
+		input = BenchmarkData.noise(2, bufferSize, 10000.0, new Random(1));
+		output = new double[2][resampler.maxOutputFrames(bufferSize)];
+	}
+
+	@Benchmark
+	public double[][] convert() {
+		resampler.process(input, 0, bufferSize, output, 0, output[0].length);
+		return output;
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Time per block of the shared reverb bus: only the summing of the sends grows with the source count, the network runs once
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReverbBusBenchmark {
+
+	@Param({"256", "1024"})
+	public int bufferSize;
+
+	@Param({"1", "500"})
+	public int sources;
+
+	private ReverbBus reverb;
+	private double[] send;
+	private double[][] bus;
+
+	@Setup
+	public void setup() {
+		reverb = new ReverbBus(2, 48000, bufferSize);
+		send = BenchmarkData.noise(1, bufferSize, 0.1, new Random(1))[0];
+		bus = new double[2][bufferSize];
+	}
+
+	@Benchmark
+	public double[][] sendsAndNetwork() {
+		for (int n = 0; n < sources; n++) {
+			reverb.addSend(send, bufferSize);
+		}
+		reverb.process(bus, bufferSize);
+		return bus;
+	}
+}
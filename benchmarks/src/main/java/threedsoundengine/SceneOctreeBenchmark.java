@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Per-block cost of keeping a scene indexed: every object drifts a little (most stay in their leaf) and then the
+//nearest 32 and everything within 10m of the listener are looked up
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneOctreeBenchmark {
+
+	@Param({"100", "10000"})
+	public int objects;
+
+	private SceneOctree<Integer> octree;
+	private List<SceneOctree.Entry<Integer>> entries;
+	private double[][] positions;
+	private double[][] velocities;
+	private List<Integer> found;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		octree = new SceneOctree<>(Vector3D.ZERO, 50.0, 16);
+		entries = new ArrayList<>(objects);
+		positions = new double[objects][3];
+		velocities = new double[objects][3];
+		for (int n = 0; n < objects; n++) {
+			for (int axis = 0; axis < 3; axis++) {
+				positions[n][axis] = (random.nextDouble() - 0.5) * 100.0;
+				//Up to 20m/s at 5ms blocks
+				velocities[n][axis] = (random.nextDouble() - 0.5) * 0.2;
+			}
+			entries.add(octree.insert(n, Vector3D.of(positions[n][0], positions[n][1], positions[n][2])));
+		}
+		found = new ArrayList<>(objects);
+	}
+
+	@Benchmark
+	public int moveAndQuery() {
+		for (int n = 0; n < objects; n++) {
+			double[] p = positions[n];
+			double[] v = velocities[n];
+			for (int axis = 0; axis < 3; axis++) {
+				p[axis] += v[axis];
+				//Bounce off the walls of the world
+				if (Math.abs(p[axis]) > 50.0) v[axis] = -v[axis];
+			}
+			octree.move(entries.get(n), p[0], p[1], p[2]);
+		}
+		found.clear();
+		octree.nearest(Vector3D.ZERO, 32, found);
+		octree.range(Vector3D.ZERO, 10.0, found);
+		return found.size();
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.geometry.euclidean.threed.SphericalCoordinates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Time per block of the full spatialisation chain (double planar and float interleaved), of the front-back filter
+//stage on its own and of one direction table lookup
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreeDEngineBenchmark {
+
+	@Param({"64", "256", "1024", "4096"})
+	public int bufferSize;
+
+	@Param({"44100", "48000", "96000", "192000"})
+	public int sampleRate;
+
+	@Param({"1", "2"})
+	public int channels;
+
+	private ThreeDEngine threeDEngine;
+	private FloatThreeDEngine floatEngine;
+	private float[] floatInput, floatOutput;
+	private double[][] input, output;
+	private SphericalCoordinates sphericalCoordsSS;
+	private double[] cutoffPosition;
+	private FrontBackFilterBank filterBank;
+	private double[] filterState;
+	private DirectionTable directionTable;
+	private double[] direction;
+
+	@Setup
+	public void setup() {
+		Main.ThreadData data = new Main.ThreadData();
+		Main.setDefaults(data);
+		threeDEngine = new ThreeDEngine(data, channels, sampleRate, bufferSize, 5000.0, 5.0);
+		input = BenchmarkData.noise(channels, bufferSize, 10000.0, new Random(1));
+		output = new double[channels][bufferSize];
+		floatEngine = new FloatThreeDEngine(data, channels, sampleRate, bufferSize, 5000.0, 5.0);
+		floatInput = new float[channels * bufferSize];
+		floatOutput = new float[channels * bufferSize];
+		for (int j = 0; j < bufferSize; j++) {
+			for (int i = 0; i < channels; i++) {
+				floatInput[(j * channels) + i] = (float)input[i][j];
+			}
+		}
+		//Behind the listener, so the front-back filter is active
+		sphericalCoordsSS = SphericalCoordinates.of(3.0, 5.0 * Math.PI / 4, Math.PI / 3);
+		cutoffPosition = new double[bufferSize];
+		filterBank = FrontBackFilterBank.forSampleRate(sampleRate);
+		filterState = new double[channels * FrontBackFilterBank.STATE_SIZE];
+		Arrays.fill(cutoffPosition, filterBank.position(2000.0));
+		directionTable = DirectionTable.forParameters(channels, sampleRate, data.getParameters());
+		direction = new double[DirectionTable.VALUES];
+	}
+
+	@Benchmark
+	public double[][] processDirection() {
+		return threeDEngine.processDirection(input, sphericalCoordsSS);
+	}
+
+	@Benchmark
+	public float[] processDirectionFloat() {
+		floatEngine.process(floatInput, 0, channels, 1, floatOutput, 0, channels, 1, bufferSize, sphericalCoordsSS.getAzimuth(), sphericalCoordsSS.getPolar(), 1.0);
+		return floatOutput;
+	}
+
+	@Benchmark
+	public double[][] frontBackFilter() {
+		filterBank.process(input, output, channels, bufferSize, cutoffPosition, filterState);
+		return output;
+	}
+
+	@Benchmark
+	public double[] directionLookup() {
+		directionTable.lookup(sphericalCoordsSS.getAzimuth(), sphericalCoordsSS.getPolar(), direction);
+		return direction;
+	}
+}
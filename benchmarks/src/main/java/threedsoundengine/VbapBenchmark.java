@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+package threedsoundengine;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Per-block cost of panning a scene over a speaker layout: every source moves a little and has its speaker gains
+//looked up, starting from the pair or triangle it used last block. The matrix also shows VbapRenderer on one block
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VbapBenchmark {
+
+	@Param({"5.1", "7.1.4"})
+	public String layoutName;
+
+	@Param({"500"})
+	public int sources;
+
+	private SpeakerLayout layout;
+	private double[] azimuths, polars, azimuthSteps, polarSteps;
+	private int[] hints;
+	private double[] gains;
+	private VbapRenderer renderer;
+	private double[][] in;
+	private double azimuth = 0.0;
+
+	@Setup
+	public void setup() throws IOException {
+		Random random = new Random(1);
+		layout = SpeakerLayout.forName(layoutName);
+		azimuths = new double[sources];
+		polars = new double[sources];
+		azimuthSteps = new double[sources];
+		polarSteps = new double[sources];
+		hints = new int[sources];
+		for (int n = 0; n < sources; n++) {
+			azimuths[n] = random.nextDouble() * 2 * Math.PI;
+			polars[n] = Math.acos((2 * random.nextDouble()) - 1);
+			azimuthSteps[n] = (random.nextDouble() - 0.5) * 0.05;
+			polarSteps[n] = (random.nextDouble() - 0.5) * 0.02;
+		}
+		gains = new double[layout.getChannels()];
+		renderer = new VbapRenderer(layout, 48000, 512, 5000.0);
+		in = new double[2][512];
+		for (int j = 0; j < 512; j++) {
+			in[0][j] = random.nextGaussian() * 0.1;
+			in[1][j] = random.nextGaussian() * 0.1;
+		}
+	}
+
+	@Benchmark
+	public double gainsForScene() {
+		double sum = 0.0;
+		for (int n = 0; n < sources; n++) {
+			azimuths[n] += azimuthSteps[n];
+			if (azimuths[n] < 0.0) azimuths[n] += 2 * Math.PI;
+			else if (azimuths[n] >= 2 * Math.PI) azimuths[n] -= 2 * Math.PI;
+			polars[n] = Math.max(0.0, Math.min(Math.PI, polars[n] + polarSteps[n]));
+			hints[n] = layout.gains(azimuths[n], polars[n], gains, hints[n]);
+			sum += gains[0];
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double[][] renderBlock() {
+		azimuth += 0.01;
+		if (azimuth >= 2 * Math.PI) azimuth -= 2 * Math.PI;
+		return renderer.processDirection(in, azimuth, 1.2, 3.0);
+	}
+}
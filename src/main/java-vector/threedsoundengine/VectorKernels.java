@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+//SIMD kernels on the widest vector shape the CPU supports, with a scalar tail for the last partial vector.
+//Built only by the vector profile and loaded by reflection, so the main build still targets plain Java 17
+final class VectorKernels implements SampleKernels {
+
+	private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+	//Same lane count as D, so a double vector converts to ints in one step
+	private static final VectorSpecies<Integer> I = VectorSpecies.of(int.class, VectorShape.forBitSize(D.vectorBitSize() / 2));
+	//Adding and subtracting 1.5 * 2^52 rounds to the nearest integer, ties to even, for |x| < 2^51
+	private static final double ROUND = 0x1.8p52;
+
+	@Override
+	public void scale(double[] src, double[] dst, int length, double gain) {
+		int j = 0;
+		for (int bound = D.loopBound(length); j < bound; j += D.length()) {
+			DoubleVector.fromArray(D, src, j).mul(gain).intoArray(dst, j);
+		}
+		for (; j < length; j++) {
+			dst[j] = src[j] * gain;
+		}
+	}
+
+	@Override
+	public void scale(double[] src, int srcOffset, double[] dst, int length, double gain) {
+		int j = 0;
+		for (int bound = D.loopBound(length); j < bound; j += D.length()) {
+			DoubleVector.fromArray(D, src, srcOffset + j).mul(gain).intoArray(dst, j);
+		}
+		for (; j < length; j++) {
+			dst[j] = src[srcOffset + j] * gain;
+		}
+	}
+
+	@Override
+	public double maxAbs(double[] src, int length) {
+		int j = 0;
+		DoubleVector max = DoubleVector.zero(D);
+		for (int bound = D.loopBound(length); j < bound; j += D.length()) {
+			max = max.max(DoubleVector.fromArray(D, src, j).abs());
+		}
+		double result = max.reduceLanes(VectorOperators.MAX);
+		for (; j < length; j++) {
+			if (Math.abs(src[j]) > result) result = Math.abs(src[j]);
+		}
+		return result;
+	}
+
+	@Override
+	public void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int dstOffset, int length) {
+		int j = 0;
+		for (int bound = D.loopBound(length); j < bound; j += D.length()) {
+			DoubleVector.fromArray(D, a, aOffset + j).mul(DoubleVector.fromArray(D, b, bOffset + j)).intoArray(dst, dstOffset + j);
+		}
+		for (; j < length; j++) {
+			dst[dstOffset + j] = a[aOffset + j] * b[bOffset + j];
+		}
+	}
+
+	@Override
+	public void quantise(double[] src, int srcOffset, int[] dst, int length, double min, double max) {
+		int j = 0;
+		for (int bound = D.loopBound(length); j < bound; j += D.length()) {
+			DoubleVector v = DoubleVector.fromArray(D, src, srcOffset + j).max(min).min(max).add(ROUND).sub(ROUND);
+			v.convertShape(VectorOperators.D2I, I, 0).reinterpretAsInts().intoArray(dst, j);
+		}
+		for (; j < length; j++) {
+			double value = src[srcOffset + j];
+			if (value > max) value = max;
+			else if (value < min) value = min;
+			dst[j] = (int)Math.rint(value);
+		}
+	}
+}
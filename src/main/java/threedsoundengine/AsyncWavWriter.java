@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+
+//Writes a WAV file from a background thread so disk stalls never reach the audio thread.
+//The audio thread copies each block into a preallocated ring; the writer thread drains it through a FileChannel and
+//patches the RIFF/data sizes every checkpoint, so the file is valid up to the last checkpoint even after a crash
+public class AsyncWavWriter implements AutoCloseable {
+
+	private static class Block {
+		final byte[] data;
+		int length;
+
+		Block(int size) {
+			data = new byte[size];
+		}
+	}
+
+	private final FileChannel channel;
+	private final AudioFormat format;
+	private final int headerSize;
+	private final SpscRing<Block> ring;
+	private final int blockBytes;
+	private final long checkpointBytes;
+	private final Thread writerThread;
+	private volatile boolean bClosed = false;
+	private volatile IOException failure;
+	private volatile long dataLength = 0;
+	private volatile long droppedBlocks = 0;
+	private volatile long stalls = 0;
+	private volatile int maxQueued = 0;
+	private long lastCheckpoint = 0;
+
+	public AsyncWavWriter(File file, AudioFormat formatIn, int blockBytesIn, int blocks, double checkpointSeconds) throws IOException {
+		this(file, formatIn, 0, blockBytesIn, blocks, checkpointSeconds);
+	}
+
+	//channelMask says which speaker each channel is for (SpeakerLayout.getChannelMask); files with more than two
+	//channels or a mask get a WAVE_FORMAT_EXTENSIBLE header
+	public AsyncWavWriter(File file, AudioFormat formatIn, int channelMask, int blockBytesIn, int blocks, double checkpointSeconds) throws IOException {
+
+		format = formatIn;
+		headerSize = WavHeader.size(format, channelMask);
+		blockBytes = blockBytesIn;
+		checkpointBytes = Math.max(blockBytes, (long)(checkpointSeconds * format.getSampleRate()) * format.getFrameSize());
+		//Round the number of blocks up to the power of two the ring needs
+		int capacity = Integer.highestOneBit(Math.max(2, blocks));
+		if (capacity < blocks) capacity <<= 1;
+		ring = new SpscRing<>(capacity, () -> new Block(blockBytes));
+
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		channel.write(ByteBuffer.wrap(WavHeader.build(format, 0, channelMask)));
+
+		writerThread = new Thread(this::drain, "AsyncWavWriter");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	//Audio thread: never blocks. Returns false, and counts the block as dropped, if the disk has fallen behind
+	public boolean write(byte[] src, int offset, int length) {
+		while (length > 0) {
+			Block block = ring.claim();
+			if (block == null) {
+				droppedBlocks = droppedBlocks + 1;
+				return false;
+			}
+			int n = Math.min(length, blockBytes);
+			System.arraycopy(src, offset, block.data, 0, n);
+			block.length = n;
+			ring.publish();
+			offset += n;
+			length -= n;
+		}
+		notifyWriter();
+		return true;
+	}
+
+	//For producers that may wait (offline rendering): parks until the writer has room, counting each wait as a stall
+	public void writeBlocking(byte[] src, int offset, int length) throws IOException {
+		while (length > 0) {
+			Block block;
+			while ((block = ring.claim()) == null) {
+				if (failure != null) throw failure;
+				stalls = stalls + 1;
+				LockSupport.unpark(writerThread);
+				LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+			}
+			int n = Math.min(length, blockBytes);
+			System.arraycopy(src, offset, block.data, 0, n);
+			block.length = n;
+			ring.publish();
+			offset += n;
+			length -= n;
+		}
+		notifyWriter();
+	}
+
+	private void notifyWriter() {
+		int queued = ring.size();
+		if (queued > maxQueued) maxQueued = queued;
+		LockSupport.unpark(writerThread);
+	}
+
+	private void drain() {
+		try {
+			while (true) {
+				Block block;
+				boolean bWrote = false;
+				while ((block = ring.peek()) != null) {
+					ByteBuffer buffer = ByteBuffer.wrap(block.data, 0, block.length);
+					while (buffer.hasRemaining()) channel.write(buffer);
+					dataLength += block.length;
+					ring.release();
+					bWrote = true;
+				}
+				if (bWrote && dataLength - lastCheckpoint >= checkpointBytes) {
+					checkpoint();
+				}
+				if (bClosed && ring.peek() == null) break;
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+			}
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	//Writer thread: makes the header match what has been written so far and forces it to disk
+	private void checkpoint() throws IOException {
+		ByteBuffer sizes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		sizes.putInt(0, WavHeader.riffSize(dataLength, headerSize));
+		channel.write(sizes, WavHeader.RIFF_SIZE_OFFSET);
+		sizes.clear();
+		sizes.putInt(0, WavHeader.dataSize(dataLength));
+		channel.write(sizes, headerSize - 4);
+		channel.force(false);
+		lastCheckpoint = dataLength;
+	}
+
+	public long getDataLength() {
+		return dataLength;
+	}
+
+	//Blocks the audio thread could not hand over because the ring was full
+	public long getDroppedBlocks() {
+		return droppedBlocks;
+	}
+
+	public long getStalls() {
+		return stalls;
+	}
+
+	//Highest number of blocks waiting for the disk, out of getCapacity()
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	public int getCapacity() {
+		return ring.capacity();
+	}
+
+	@Override
+	public void close() throws IOException {
+		bClosed = true;
+		LockSupport.unpark(writerThread);
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			if (failure != null) throw failure;
+			checkpoint();
+		} finally {
+			channel.close();
+		}
+		if (droppedBlocks > 0) {
+			System.out.println("WAV writer could not keep up: " + droppedBlocks + " blocks dropped, up to " + maxQueued + " of " + ring.capacity() + " blocks queued");
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+//Records how close each audio block comes to its deadline. Only the audio thread writes, so the counters are
+//single-writer volatiles and the histogram is an AtomicLongArray; readers (JMX, the summary log) never block it
+public class AudioLoopMonitor implements AudioLoopMonitorMBean, AutoCloseable {
+
+	private static final int HISTOGRAM_BUCKETS = 256;
+	//Buckets are 1/64 of a block, so the histogram covers up to four times the deadline
+	private static final int BUCKETS_PER_BLOCK = 64;
+
+	private final long blockNanos;
+	private final int frameSize;
+	private final double bytesPerMilli;
+	private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+	private volatile long blocks, underruns, deadlineMisses;
+	private volatile long lastNanos, maxNanos, totalNanos;
+	private volatile long minQueuedBytes = Long.MAX_VALUE;
+	private ObjectName name;
+	private ScheduledExecutorService logger;
+
+	public AudioLoopMonitor(int framesPerBlock, int sampleRate, int frameSizeIn) {
+		blockNanos = (long)(framesPerBlock * 1e9 / sampleRate);
+		frameSize = frameSizeIn;
+		bytesPerMilli = sampleRate * frameSize / 1000.0;
+	}
+
+	//Registers the MBean and starts a summary log line every logPeriodSeconds (0 for none)
+	public void start(int logPeriodSeconds) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			name = new ObjectName("threedsoundengine:type=AudioLoopMonitor");
+			if (server.isRegistered(name)) server.unregisterMBean(name);
+			server.registerMBean(this, name);
+		} catch (JMException e) {
+			System.out.println("Audio loop monitor not registered with JMX: " + e.getMessage());
+			name = null;
+		}
+		if (logPeriodSeconds > 0) {
+			logger = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "AudioLoopMonitor");
+				t.setDaemon(true);
+				return t;
+			});
+			logger.scheduleAtFixedRate(() -> System.out.println(getSummary()), logPeriodSeconds, logPeriodSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	//Called by the audio thread once a block has been processed, just before it is written to the line.
+	//queuedBytes is the audio still waiting in the line; an empty line after the first block is an underrun
+	public void blockProcessed(long processingNanos, int queuedBytes) {
+
+		long count = blocks;
+		if (count > 0) {
+			if (queuedBytes <= 0) underruns = underruns + 1;
+			if (queuedBytes < minQueuedBytes) minQueuedBytes = queuedBytes;
+		}
+		if (processingNanos > blockNanos) deadlineMisses = deadlineMisses + 1;
+		lastNanos = processingNanos;
+		if (processingNanos > maxNanos) maxNanos = processingNanos;
+		totalNanos = totalNanos + processingNanos;
+
+		int bucket = (int)(processingNanos * BUCKETS_PER_BLOCK / blockNanos);
+		histogram.incrementAndGet(Math.min(bucket, HISTOGRAM_BUCKETS - 1));
+		blocks = count + 1;
+	}
+
+	@Override
+	public long getBlocks() {
+		return blocks;
+	}
+
+	@Override
+	public long getUnderruns() {
+		return underruns;
+	}
+
+	@Override
+	public double getBlockDurationMillis() {
+		return blockNanos / 1e6;
+	}
+
+	@Override
+	public double getLastProcessingMicros() {
+		return lastNanos / 1e3;
+	}
+
+	@Override
+	public double getMaxProcessingMicros() {
+		return maxNanos / 1e3;
+	}
+
+	@Override
+	public double getMeanLoad() {
+		long count = blocks;
+		return count == 0 ? 0.0 : (double)totalNanos / count / blockNanos;
+	}
+
+	@Override
+	public double getMaxLoad() {
+		return (double)maxNanos / blockNanos;
+	}
+
+	@Override
+	public long getDeadlineMisses() {
+		return deadlineMisses;
+	}
+
+	@Override
+	public double getProcessingPercentileMicros(double percentile) {
+		long[] counts = getLatencyHistogram();
+		long total = 0;
+		for (long c : counts) total += c;
+		if (total == 0) return 0.0;
+		long target = (long)Math.ceil(total * percentile / 100.0);
+		long seen = 0;
+		for (int k = 0; k < counts.length; k++) {
+			seen += counts[k];
+			if (seen >= target) return (k + 1) * getHistogramBucketMicros();
+		}
+		return counts.length * getHistogramBucketMicros();
+	}
+
+	@Override
+	public double getMinHeadroomMillis() {
+		long queued = minQueuedBytes;
+		return queued == Long.MAX_VALUE ? 0.0 : queued / bytesPerMilli;
+	}
+
+	@Override
+	public long[] getLatencyHistogram() {
+		long[] counts = new long[HISTOGRAM_BUCKETS];
+		for (int k = 0; k < HISTOGRAM_BUCKETS; k++) {
+			counts[k] = histogram.get(k);
+		}
+		return counts;
+	}
+
+	@Override
+	public double getHistogramBucketMicros() {
+		return blockNanos / 1e3 / BUCKETS_PER_BLOCK;
+	}
+
+	//Not synchronised with the audio thread, so a block recorded during a reset may be partly kept
+	@Override
+	public void reset() {
+		for (int k = 0; k < HISTOGRAM_BUCKETS; k++) {
+			histogram.set(k, 0);
+		}
+		blocks = 0;
+		underruns = 0;
+		deadlineMisses = 0;
+		maxNanos = 0;
+		totalNanos = 0;
+		minQueuedBytes = Long.MAX_VALUE;
+	}
+
+	public String getSummary() {
+		return String.format("Audio loop: %d blocks, load mean %.2f max %.2f, p99 %.0f us of %.0f us, %d deadline misses, %d underruns, min headroom %.1f ms",
+				getBlocks(), getMeanLoad(), getMaxLoad(), getProcessingPercentileMicros(99.0), blockNanos / 1e3, getDeadlineMisses(), getUnderruns(), getMinHeadroomMillis());
+	}
+
+	@Override
+	public void close() {
+		if (logger != null) logger.shutdownNow();
+		if (name != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			} catch (JMException e) {
+				//Already gone
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//JMX view of AudioLoopMonitor, registered as threedsoundengine:type=AudioLoopMonitor
+public interface AudioLoopMonitorMBean {
+
+	long getBlocks();
+
+	long getUnderruns();
+
+	double getBlockDurationMillis();
+
+	double getLastProcessingMicros();
+
+	double getMaxProcessingMicros();
+
+	//Processing time as a fraction of the block duration, above 1.0 the block missed its deadline
+	double getMeanLoad();
+
+	double getMaxLoad();
+
+	long getDeadlineMisses();
+
+	double getProcessingPercentileMicros(double percentile);
+
+	//Smallest amount of audio still queued in the line just before a block was written
+	double getMinHeadroomMillis();
+
+	long[] getLatencyHistogram();
+
+	double getHistogramBucketMicros();
+
+	void reset();
+}
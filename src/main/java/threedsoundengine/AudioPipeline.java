@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import javax.sound.sampled.SourceDataLine;
+
+//Runs playback as three stages on their own threads, so a stall in one does not stop the others:
+//  decode  reads ahead from the SampleSource into a ring of decoded blocks
+//  render  spatialises, gain controls and encodes each block into a ring of output blocks
+//  output  (the thread calling run) writes to the line, which paces everything, and hands blocks to the WAV writer
+//The rings are preallocated SpscRings, so the stages share no locks and nothing is allocated per block. A stage with
+//nothing to do parks briefly and is woken by the other side, so the render thread only waits for free output slots,
+//i.e. on the output clock
+public class AudioPipeline {
+
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+	private static class InputBlock {
+		final double[][] planar;
+		final float[] interleaved;
+		int frames;
+
+		InputBlock(int channels, int frames, boolean bSinglePrecision) {
+			planar = bSinglePrecision ? null : new double[channels][frames];
+			interleaved = bSinglePrecision ? new float[channels * frames] : null;
+		}
+	}
+
+	private static class OutputBlock {
+		final byte[] data;
+		int length;
+		boolean bLast;
+
+		OutputBlock(int size) {
+			data = new byte[size];
+		}
+	}
+
+	private final Main.ThreadData data;
+	private final SampleSource source;
+	private final ProcessAudio processAudio;
+	private final PcmCodec outCodec;
+	private final SourceDataLine line;
+	private final AsyncWavWriter out;
+	private final AudioLoopMonitor monitor;
+	private final SpscRing<InputBlock> decodeRing;
+	private final SpscRing<OutputBlock> outputRing;
+	private final int frames;
+	private final int inChannels;
+	private LongConsumer beforeRender;
+	private Thread decodeThread, renderThread, outputThread;
+	private volatile boolean bDecodeDone = false, bRenderDone = false;
+	private volatile Exception failure;
+	//Statistics, each written by one stage only
+	private volatile long decodeWaits, renderWaits, outputWaits;
+	private volatile int minDecodeFill = Integer.MAX_VALUE, minOutputFill = Integer.MAX_VALUE;
+	private volatile long framesWritten;
+
+	//line and out may each be null. The queue depths are rounded up to powers of two
+	public AudioPipeline(Main.ThreadData dataIn, SampleSource sourceIn, ProcessAudio processAudioIn, PcmCodec outCodecIn,
+			SourceDataLine lineIn, AsyncWavWriter outIn, AudioLoopMonitor monitorIn, int decodeDepth, int outputDepth) {
+
+		data = dataIn;
+		source = sourceIn;
+		processAudio = processAudioIn;
+		outCodec = outCodecIn;
+		line = lineIn;
+		out = outIn;
+		monitor = monitorIn;
+		frames = processAudio.getBufferSize();
+		inChannels = source.getFormat().getChannels();
+		int channels = processAudio.getChannels();
+		boolean bSinglePrecision = processAudio.isSinglePrecision();
+		int outputBytes = processAudio.getMaxOutputFrames() * outCodec.getFrameSize();
+		decodeRing = new SpscRing<>(powerOfTwo(decodeDepth), () -> new InputBlock(channels, frames, bSinglePrecision));
+		outputRing = new SpscRing<>(powerOfTwo(outputDepth), () -> new OutputBlock(outputBytes));
+	}
+
+	private static int powerOfTwo(int depth) {
+		int capacity = Integer.highestOneBit(Math.max(2, depth));
+		return capacity < depth ? capacity << 1 : capacity;
+	}
+
+	//Called on the render thread before each block with the engine frames rendered so far, e.g. to move the source
+	public void setBeforeRender(LongConsumer beforeRenderIn) {
+		beforeRender = beforeRenderIn;
+	}
+
+	//Starts the decode and render threads, runs the output stage on this thread until the input ends or
+	//ThreadData.bAudioStop is set, and waits for the other stages to finish
+	public void run() throws IOException {
+
+		outputThread = Thread.currentThread();
+		decodeThread = new Thread(this::decode, "AudioPipeline-decode");
+		renderThread = new Thread(this::render, "AudioPipeline-render");
+		renderThread.setPriority(Thread.MAX_PRIORITY);
+		decodeThread.setDaemon(true);
+		renderThread.setDaemon(true);
+		decodeThread.start();
+		renderThread.start();
+		try {
+			output();
+		} finally {
+			//Wakes a stage parked on a full ring, so it sees the stop
+			bRenderDone = true;
+			LockSupport.unpark(decodeThread);
+			LockSupport.unpark(renderThread);
+			try {
+				renderThread.join();
+				decodeThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (failure instanceof IOException) throw (IOException)failure;
+		if (failure != null) throw new IOException("Audio pipeline failed", failure);
+	}
+
+	private boolean isStopped() {
+		return data.bAudioStop || failure != null;
+	}
+
+	private void decode() {
+		try {
+			while (!isStopped() && !bRenderDone) {
+				InputBlock block = decodeRing.claim();
+				if (block == null) {
+					LockSupport.parkNanos(PARK_NANOS);
+					continue;
+				}
+				//Loop points wrap inside the read, so a looped block is gapless
+				source.setLooping(data.bLoop);
+				block.frames = block.planar != null ? source.read(block.planar, 0, frames) : source.read(block.interleaved, 0, frames);
+				decodeRing.publish();
+				LockSupport.unpark(renderThread);
+				if (block.frames < frames) break;
+			}
+		} catch (IOException | RuntimeException e) {
+			failure = e;
+		} finally {
+			bDecodeDone = true;
+			LockSupport.unpark(renderThread);
+		}
+	}
+
+	private void render() {
+		long engineFrames = 0;
+		try {
+			while (!isStopped() && !bRenderDone) {
+				InputBlock in = decodeRing.peek();
+				if (in == null) {
+					if (bDecodeDone && decodeRing.peek() == null) break;
+					//The decoder has fallen behind
+					decodeWaits = decodeWaits + 1;
+					LockSupport.parkNanos(PARK_NANOS);
+					continue;
+				}
+				OutputBlock block = outputRing.claim();
+				if (block == null) {
+					//Output full: waiting here is waiting on the output clock
+					renderWaits = renderWaits + 1;
+					LockSupport.parkNanos(PARK_NANOS);
+					continue;
+				}
+				//Blocks queued behind this one: 0 means the decoder was about to fall behind
+				int fill = decodeRing.size() - 1;
+				if (fill < minDecodeFill) minDecodeFill = fill;
+
+				if (beforeRender != null) beforeRender.accept(engineFrames);
+				long startTime = System.nanoTime();
+				int framesOut = in.planar != null ? processAudio.renderBlock(in.planar, in.frames, inChannels, outCodec, block.data)
+						: processAudio.renderBlock(in.interleaved, in.frames, inChannels, outCodec, block.data);
+				if (monitor != null) monitor.blockProcessed(System.nanoTime() - startTime, line == null ? 1 : line.getBufferSize() - line.available());
+				decodeRing.release();
+				LockSupport.unpark(decodeThread);
+				engineFrames += frames;
+
+				block.length = framesOut * outCodec.getFrameSize();
+				block.bLast = processAudio.isEndOfInput();
+				outputRing.publish();
+				LockSupport.unpark(outputThread);
+				if (block.bLast) break;
+			}
+		} catch (RuntimeException e) {
+			failure = e;
+		} finally {
+			bRenderDone = true;
+			LockSupport.unpark(outputThread);
+		}
+	}
+
+	private void output() throws IOException {
+		while (!isStopped()) {
+			OutputBlock block = outputRing.peek();
+			if (block == null) {
+				if (bRenderDone && outputRing.peek() == null) break;
+				//Nothing rendered yet: the line is living on what it has queued
+				if (framesWritten > 0) outputWaits = outputWaits + 1;
+				LockSupport.parkNanos(PARK_NANOS);
+				continue;
+			}
+			int fill = outputRing.size() - 1;
+			if (fill < minOutputFill) minOutputFill = fill;
+
+			if (line != null) {
+				int offset = 0;
+				while (offset < block.length) {
+					offset += line.write(block.data, offset, block.length - offset);
+				}
+				if (out != null) out.write(block.data, 0, block.length);
+			}
+			//With no line the file is the clock, so it may wait for the disk
+			else if (out != null) out.writeBlocking(block.data, 0, block.length);
+			framesWritten = framesWritten + (block.length / outCodec.getFrameSize());
+			boolean bLast = block.bLast;
+			outputRing.release();
+			LockSupport.unpark(renderThread);
+			if (bLast) break;
+		}
+	}
+
+	public long getFramesWritten() {
+		return framesWritten;
+	}
+
+	public int getDecodeQueueDepth() {
+		return decodeRing.capacity();
+	}
+
+	public int getOutputQueueDepth() {
+		return outputRing.capacity();
+	}
+
+	//Decoded blocks waiting to be rendered
+	public int getDecodeFill() {
+		return decodeRing.size();
+	}
+
+	//Rendered blocks waiting for the output
+	public int getOutputFill() {
+		return outputRing.size();
+	}
+
+	//Times the render thread found no decoded block
+	public long getDecodeWaits() {
+		return decodeWaits;
+	}
+
+	//Times the render thread found the output queue full, the expected steady state
+	public long getRenderWaits() {
+		return renderWaits;
+	}
+
+	//Times the output stage found nothing rendered after the first block
+	public long getOutputWaits() {
+		return outputWaits;
+	}
+
+	public String getSummary() {
+		return String.format("Pipeline: decode queue %d/%d (min %d), output queue %d/%d (min %d), render waited for decode %d times and for output %d times, output waited for render %d times",
+				getDecodeFill(), getDecodeQueueDepth(), minDecodeFill == Integer.MAX_VALUE ? 0 : minDecodeFill,
+				getOutputFill(), getOutputQueueDepth(), minOutputFill == Integer.MAX_VALUE ? 0 : minOutputFill,
+				decodeWaits, renderWaits, outputWaits);
+	}
+}
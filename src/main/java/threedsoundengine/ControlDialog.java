@@ -21,6 +21,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.io.File;
+import java.io.IOException;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JDialog;
@@ -39,7 +40,7 @@ public class ControlDialog {
 	private Main.ThreadData data;
 	public JDialog ThreeDEngine;
 	static private String message;
-	private JCheckBox checkBox;
+	private JCheckBox checkBox, checkBoxReverb;
 	private StreamAudio audio;
 	private JFrame frame;
 	private JSlider sliderVGain, sliderIncrementAzimuth, sliderIncrementPolar;
@@ -108,6 +109,18 @@ public class ControlDialog {
          });    
 	    checkBox.setBounds(330, 400, 70, 25);
 	    ThreeDEngine.add(checkBox);
+	    
+	    //Sources send into the shared reverb bus while this is ticked
+	    checkBoxReverb = new JCheckBox("Reverb", data.bReverb);
+	    checkBoxReverb.addItemListener(new ItemListener() {
+            public void itemStateChanged(ItemEvent e) {
+               data.bReverb = (e.getStateChange()==1?true:false);
+            }
+         });
+	    //Single precision and HRIR rendering have no reverb send
+	    checkBoxReverb.setEnabled(!data.bSinglePrecision && data.hrirFilters == null);
+	    checkBoxReverb.setBounds(330, 370, 80, 25);
+	    ThreeDEngine.add(checkBoxReverb);
 
 		JButton btnStop = new JButton("Stop");
 		btnStop.addActionListener(new ActionListener() {
@@ -143,6 +156,25 @@ public class ControlDialog {
 		});
 		btnBrowse.setBounds(200, 400, 97, 25);
 		ThreeDEngine.getContentPane().add(btnBrowse);
+
+		//Picks a keyframe file for the source to follow on the next Play, instead of the slider orbit
+		JFileChooser fcTrajectory = new JFileChooser();
+		fcTrajectory.addChoosableFileFilter(new FileNameExtensionFilter("Trajectory Files", "traj", "txt"));
+		JButton btnTrajectory = new JButton("Trajectory...");
+		btnTrajectory.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent arg0) {
+				if (fcTrajectory.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
+					try {
+						data.trajectory = TrajectoryFile.load(fcTrajectory.getSelectedFile());
+					} catch (IOException | IllegalArgumentException e) {
+						System.out.println("Could not load trajectory: " + e.getMessage());
+						data.trajectory = null;
+					}
+				}
+			}
+		});
+		btnTrajectory.setBounds(50, 400, 120, 25);
+		ThreeDEngine.getContentPane().add(btnTrajectory);
 	
 		JLabel lblTitle = new JLabel("3D Sound Engine 1");
 		lblTitle.setHorizontalAlignment(SwingConstants.CENTER);
@@ -158,11 +190,12 @@ public class ControlDialog {
 		lblVGain.setBounds(350, 50, 150, 16);
 		ThreeDEngine.getContentPane().add(lblVGain);
 
-		sliderVGain = new JSlider(JSlider.HORIZONTAL, 0, 100, (int)(data.vGain*100));
+		sliderVGain = new JSlider(JSlider.HORIZONTAL, 0, 100, (int)(data.getParameters().vGain*100));
 		sliderVGain.addChangeListener(new ChangeListener() {
 			public void stateChanged(ChangeEvent arg0) {
 				
-				data.vGain = (sliderVGain.getValue()/100.0);
+				double vGain = sliderVGain.getValue()/100.0;
+				data.updateParameters(p -> p.withVGain(vGain));
 				lblVGain_value.setText(Double.toString(sliderVGain.getValue()/100.0));
 			}
 		});
@@ -227,11 +260,12 @@ public class ControlDialog {
 		lblPanDivision.setBounds(350, 200, 150, 16);
 		ThreeDEngine.getContentPane().add(lblPanDivision);
 
-		sliderPanDivision = new JSlider(JSlider.HORIZONTAL, 1, 10, (int)(data.panDivision));
+		sliderPanDivision = new JSlider(JSlider.HORIZONTAL, 1, 10, (int)(data.getParameters().panDivision));
 		sliderPanDivision.addChangeListener(new ChangeListener() {
 			public void stateChanged(ChangeEvent arg0) {
 				
-				data.panDivision = (sliderPanDivision.getValue());
+				double panDivision = sliderPanDivision.getValue();
+				data.updateParameters(p -> p.withPanDivision(panDivision));
 				lblPanDivision_value.setText(Integer.toString(sliderPanDivision.getValue()));
 			}
 		});
@@ -250,11 +284,12 @@ public class ControlDialog {
 		lblUpperLimitFrequency.setBounds(350, 250, 150, 16);
 		ThreeDEngine.getContentPane().add(lblUpperLimitFrequency);
 
-		sliderUpperLimitFrequency = new JSlider(JSlider.HORIZONTAL, 0, 100, (int)(data.upperLimitFrequency/1000.0));
+		sliderUpperLimitFrequency = new JSlider(JSlider.HORIZONTAL, 0, 100, (int)(data.getParameters().upperLimitFrequency/1000.0));
 		sliderUpperLimitFrequency.addChangeListener(new ChangeListener() {
 			public void stateChanged(ChangeEvent arg0) {
 				
-				data.upperLimitFrequency = (sliderUpperLimitFrequency.getValue()*1000.0);
+				double upperLimitFrequency = sliderUpperLimitFrequency.getValue()*1000.0;
+				data.updateParameters(p -> p.withUpperLimitFrequency(upperLimitFrequency));
 				lblUpperLimitFrequency_value.setText(Double.toString(sliderUpperLimitFrequency.getValue()*1000.0));
 			}
 		});
@@ -273,11 +308,12 @@ public class ControlDialog {
 		lblLowerLimitFrequency.setBounds(350, 300, 150, 16);
 		ThreeDEngine.getContentPane().add(lblLowerLimitFrequency);
 
-		sliderLowerLimitFrequency = new JSlider(JSlider.HORIZONTAL, 0, 100, (int)(data.lowerLimitFrequency/10.0));
+		sliderLowerLimitFrequency = new JSlider(JSlider.HORIZONTAL, 0, 100, (int)(data.getParameters().lowerLimitFrequency/10.0));
 		sliderLowerLimitFrequency.addChangeListener(new ChangeListener() {
 			public void stateChanged(ChangeEvent arg0) {
 				
-				data.lowerLimitFrequency = (sliderLowerLimitFrequency.getValue()*10.0);
+				double lowerLimitFrequency = sliderLowerLimitFrequency.getValue()*10.0;
+				data.updateParameters(p -> p.withLowerLimitFrequency(lowerLimitFrequency));
 				lblLowerLimitFrequency_value.setText(Double.toString(sliderLowerLimitFrequency.getValue()*10.0));
 			}
 		});
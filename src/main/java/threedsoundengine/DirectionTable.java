@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+//Precomputed per-direction parameters on an azimuth/polar grid, bilinearly interpolated between grid points.
+//One lookup gives the pan gains, vertical delay and front-back filter cut-off without any trig per block.
+//A table only depends on the channel count, sample rate and the filter settings, so engines with the same settings share one.
+//Tables are built where EngineParameters are published (EngineParameters.withDirectionTable) and reach the engines with them
+public final class DirectionTable {
+
+	//Offsets into the array filled by lookup()
+	public static final int PAN_LEFT = 0;
+	public static final int PAN_RIGHT = 1;
+	public static final int DELAY = 2;
+	public static final int CUTOFF = 3;
+	static final int VALUES = 4;
+
+	//Azimuth steps are a multiple of 4 and polar steps are even, so the kinks of |sin| and the pan switch-over fall on grid points
+	static final int AZIMUTH_STEPS = 256;
+	static final int POLAR_STEPS = 128;
+	private static final double AZIMUTH_SCALE = AZIMUTH_STEPS / (2.0 * Math.PI);
+	private static final double POLAR_SCALE = POLAR_STEPS / Math.PI;
+
+	//The latest table for each channel count and rate, so engines of different formats never evict each other
+	private static final ConcurrentHashMap<Long, DirectionTable> shared = new ConcurrentHashMap<>();
+
+	private final int channels;
+	private final int sampleRate;
+	private final double panDivision;
+	private final double upperLimitFrequency;
+	private final double lowerLimitFrequency;
+	private final double[] table;
+
+	private DirectionTable(int channelsIn, int sampleRateIn, EngineParameters params) {
+		channels = channelsIn;
+		sampleRate = sampleRateIn;
+		panDivision = params.panDivision;
+		upperLimitFrequency = params.upperLimitFrequency;
+		lowerLimitFrequency = params.lowerLimitFrequency;
+
+		table = new double[(AZIMUTH_STEPS + 1) * (POLAR_STEPS + 1) * VALUES];
+		int index = 0;
+		for (int a = 0; a <= AZIMUTH_STEPS; a++) { //azimuth
+			double azimuth = a / AZIMUTH_SCALE;
+			double sinAzimuth = Math.abs(Math.sin(azimuth));
+			boolean bLeft = Math.cos(azimuth) < 0;
+			double panLeft = channels == 2 ? (bLeft ? 1.0 : sinAzimuth) : 1.0;
+			double panRight = channels == 2 ? (bLeft ? sinAzimuth : 1.0) : 1.0;
+			for (int p = 0; p <= POLAR_STEPS; p++) { //polar
+				double polar = p / POLAR_SCALE;
+				double vPan = Math.abs(Math.sin(polar));
+				table[index++] = panLeft;
+				table[index++] = panRight;
+				table[index++] = 0.5 * polar / Math.PI * sampleRate / 1000.0;
+				//Front-back filter cut-off used when the source is behind, smoothing the transition to the back
+				double cutoff = ((((1 - panLeft * panRight) + (1 - vPan)) / panDivision) * upperLimitFrequency) + lowerLimitFrequency;
+				table[index++] = cutoff;
+			}
+		}
+	}
+
+	//Returns a table for these settings, reusing the last one built for the channel count and rate if it still matches
+	public static DirectionTable forParameters(int channels, int sampleRate, EngineParameters params) {
+		Long format = ((long)channels << 32) | sampleRate;
+		DirectionTable current = shared.get(format);
+		if (current != null && current.matches(channels, sampleRate, params)) return current;
+		current = new DirectionTable(channels, sampleRate, params);
+		shared.put(format, current);
+		return current;
+	}
+
+	//Only the filter settings feed the table, so gain and ramp shape changes keep it valid
+	public boolean matches(int channelsIn, int sampleRateIn, EngineParameters params) {
+		return channels == channelsIn && sampleRate == sampleRateIn
+				&& panDivision == params.panDivision
+				&& upperLimitFrequency == params.upperLimitFrequency
+				&& lowerLimitFrequency == params.lowerLimitFrequency;
+	}
+
+	//Fills out[PAN_LEFT..CUTOFF] for an azimuth in [0, 2pi) and a polar angle in [0, pi]
+	public void lookup(double azimuth, double polar, double[] out) {
+
+		double a = clamp(azimuth * AZIMUTH_SCALE, AZIMUTH_STEPS);
+		double p = clamp(polar * POLAR_SCALE, POLAR_STEPS);
+		int a0 = Math.min((int)a, AZIMUTH_STEPS - 1);
+		int p0 = Math.min((int)p, POLAR_STEPS - 1);
+		double fa = a - a0;
+		double fp = p - p0;
+
+		int i00 = ((a0 * (POLAR_STEPS + 1)) + p0) * VALUES;
+		int i01 = i00 + VALUES;
+		int i10 = i00 + ((POLAR_STEPS + 1) * VALUES);
+		int i11 = i10 + VALUES;
+		for (int k = 0; k < VALUES; k++) {
+			double v0 = table[i00 + k] + (fp * (table[i01 + k] - table[i00 + k]));
+			double v1 = table[i10 + k] + (fp * (table[i11 + k] - table[i10 + k]));
+			out[k] = v0 + (fa * (v1 - v0));
+		}
+
+		//The filter only applies behind the listener; the region test is done on the exact angles so the edge is not blurred
+		if (!(azimuth > Math.PI && azimuth < 2 * Math.PI && polar > 0 && polar < Math.PI)) {
+			out[CUTOFF] = FrontBackFilterBank.FRONT_CUTOFF;
+		}
+	}
+
+	private static double clamp(double value, int max) {
+		if (value < 0.0) return 0.0;
+		if (value > max) return max;
+		return value;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//Source-listener distance effects shared by the double and float engines: propagation delay (which gives Doppler
+//when the delay is ramped), inverse distance attenuation and air absorption, plus the 4 point Lagrange interpolator
+//used to read the fractional delay
+final class DistanceModel {
+
+	public static final double SPEED_OF_SOUND = 343.0;
+	//Air absorption is modelled as a one-pole low-pass whose cut-off falls as 1 / distance: this many Hz at 1m,
+	//so it is inaudible at a few metres and takes the top octaves off at tens of metres
+	private static final double AIR_CUTOFF_HZ_METRES = 200000.0;
+	//The interpolator reads up to 2 samples ahead of the read position, which must already be written
+	public static final double MIN_DELAY = 2.0;
+
+	private DistanceModel() {
+	}
+
+	public static double delaySamples(double distance, int sampleRate) {
+		return distance * sampleRate / SPEED_OF_SOUND;
+	}
+
+	public static double gain(double distance, double referenceDistance) {
+		return distance <= referenceDistance ? 1.0 : referenceDistance / distance;
+	}
+
+	//Pole of the air absorption low-pass, y = x + a (y - x)
+	public static double airCoefficient(double distance, int sampleRate) {
+		double cutoff = AIR_CUTOFF_HZ_METRES / Math.max(distance, 1e-3);
+		return Math.exp(-2 * Math.PI * cutoff / sampleRate);
+	}
+
+	//Third order Lagrange interpolation between line[index] and line[index + 1], t in [0, 1), using the samples
+	//either side. Indices wrap with mask, so the line length must be a power of two
+	public static double lagrange(double[] line, int index, double t, int mask) {
+		double xm1 = line[(index - 1) & mask];
+		double x0 = line[index & mask];
+		double x1 = line[(index + 1) & mask];
+		double x2 = line[(index + 2) & mask];
+		double tm1 = t - 1.0, tm2 = t - 2.0, tp1 = t + 1.0;
+		return (((-t * tm1 * tm2) / 6.0) * xm1) + (((tp1 * tm1 * tm2) / 2.0) * x0)
+			- (((tp1 * t * tm2) / 2.0) * x1) + (((tp1 * t * tm1) / 6.0) * x2);
+	}
+
+	public static float lagrange(float[] line, int index, float t, int mask) {
+		float xm1 = line[(index - 1) & mask];
+		float x0 = line[index & mask];
+		float x1 = line[(index + 1) & mask];
+		float x2 = line[(index + 2) & mask];
+		float tm1 = t - 1.0f, tm2 = t - 2.0f, tp1 = t + 1.0f;
+		return (((-t * tm1 * tm2) / 6.0f) * xm1) + (((tp1 * tm1 * tm2) / 2.0f) * x0)
+			- (((tp1 * t * tm2) / 2.0f) * x1) + (((tp1 * t * tm1) / 6.0f) * x2);
+	}
+
+	//Smallest power of two holding at least size samples
+	public static int powerOfTwo(int size) {
+		return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+package threedsoundengine;
+
+import java.util.Arrays;
+
+//The double precision distance stage shared by ThreeDEngine and VbapRenderer: each channel is written to a delay line
+//and read back at the propagation delay (ramped per sample, so a moving source gets Doppler), through the air
+//absorption low-pass and the attenuation ramp. It also works out the reverb send, which rises with distance
+final class DistanceStage {
+
+	//Reverb send: the level rises with distance, so far sources sound further away against the room
+	private static final double REVERB_SEND = 0.5;
+	public static final double CRITICAL_DISTANCE = 1.0;
+
+	private final int channels;
+	//Delay lines are powers of two long, so positions wrap with a mask
+	private final double[][] delayLine;
+	private final int delayLineSize, mask;
+	private int writePosition = 0;
+	private final ParameterRamp delayRamp, gainRamp, sendRamp;
+	private final double[] delay, gain, sendGain, reverbSend;
+	private final double[] airState;
+	private double air;
+	private boolean bFirstBlock = true;
+	private boolean bReverbSend = false;
+
+	DistanceStage(int channelsIn, int sampleRate, int bufferSize, double delayBufferSizeInMs) {
+		channels = channelsIn;
+		delayLineSize = DistanceModel.powerOfTwo((int)(delayBufferSizeInMs * sampleRate / 1000.0) + bufferSize + 4);
+		mask = delayLineSize - 1;
+		delayLine = new double[channels][delayLineSize];
+		delayRamp = new ParameterRamp(sampleRate, 0.0);
+		gainRamp = new ParameterRamp(sampleRate, 0.0);
+		sendRamp = new ParameterRamp(sampleRate, 0.0);
+		delay = new double[bufferSize];
+		gain = new double[bufferSize];
+		sendGain = new double[bufferSize];
+		reverbSend = new double[bufferSize];
+		airState = new double[channels];
+	}
+
+	void reset() {
+		for (int i = 0; i < channels; i++) {
+			Arrays.fill(delayLine[i], 0.0);
+		}
+		Arrays.fill(airState, 0.0);
+		sendRamp.reset(0.0);
+		bReverbSend = false;
+		writePosition = 0;
+		bFirstBlock = true;
+	}
+
+	//Control rate: the delay, attenuation, air absorption and send level for a block at this distance, ramped from
+	//the last block's. The first block starts at its values
+	void setDistance(double distance, int sampleRate, double referenceDistance, ParameterRamp.Shape shape, boolean bReverbOn, int frames) {
+		//The delay is kept short enough that a whole block of reads stays behind the block just written
+		double delayTarget = Math.max(DistanceModel.MIN_DELAY, Math.min(DistanceModel.delaySamples(distance, sampleRate), delayLineSize - frames - 4));
+		double distanceGain = DistanceModel.gain(distance, referenceDistance);
+		air = DistanceModel.airCoefficient(distance, sampleRate);
+		if (bFirstBlock) {
+			delayRamp.reset(delayTarget);
+			gainRamp.reset(distanceGain);
+			bFirstBlock = false;
+		}
+		delayRamp.setShape(shape);
+		delayRamp.fill(delayTarget, delay, frames);
+		gainRamp.setShape(shape);
+		gainRamp.fill(distanceGain, gain, frames);
+
+		//Skipped once the level has ramped down to nothing
+		double sendTarget = bReverbOn ? REVERB_SEND * distance / (distance + CRITICAL_DISTANCE) : 0.0;
+		if (sendTarget == 0.0 && Math.abs(sendRamp.getValue()) < 1e-6) sendRamp.reset(0.0);
+		bReverbSend = sendTarget != 0.0 || sendRamp.getValue() != 0.0;
+		if (bReverbSend) {
+			sendRamp.setShape(shape);
+			sendRamp.fill(sendTarget, sendGain, frames);
+		}
+	}
+
+	//Fills the reverb send from the mean of in's channels, if there is a send this block
+	void send(double[][] in, int frames) {
+		if (!bReverbSend) return;
+		double channelScale = 1.0 / channels;
+		for (int j = 0; j < frames; j++) { //data
+			double sum = 0.0;
+			for (int i = 0; i < channels; i++) { //channels
+				sum += in[i][j];
+			}
+			reverbSend[j] = sum * channelScale * sendGain[j];
+		}
+	}
+
+	//The send filled by the last block, or null if it had none
+	double[] getReverbSend() {
+		return bReverbSend ? reverbSend : null;
+	}
+
+	//Audio rate: writes in's block to the delay lines, then reads it back delayed, air filtered and attenuated into out,
+	//times pan[channel] when pan is not null. out may be in
+	void process(double[][] in, double[][] out, double[][] pan, int frames) {
+		for (int i = 0; i < channels; i++) { //channels
+			double[] line = delayLine[i];
+			double[] dst = out[i];
+			int first = Math.min(frames, delayLineSize - writePosition);
+			System.arraycopy(in[i], 0, line, writePosition, first);
+			System.arraycopy(in[i], first, line, 0, frames - first);
+			double airLevel = airState[i];
+			for (int j = 0; j < frames; j++) { //data
+				//Fractional read position, interpolated so the delay can glide
+				double readPosition = writePosition + j - delay[j] + delayLineSize;
+				int index = (int)readPosition;
+				double delayed = DistanceModel.lagrange(line, index, readPosition - index, mask);
+				//Air absorption, then attenuation
+				airLevel = delayed + (air * (airLevel - delayed));
+				dst[j] = airLevel * gain[j];
+			}
+			airState[i] = airLevel;
+			if (pan != null) {
+				double[] panGain = pan[i];
+				for (int j = 0; j < frames; j++) { //data
+					dst[j] *= panGain[j];
+				}
+			}
+		}
+		writePosition = (writePosition + frames) & mask;
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Arrays;
+
+//Immutable snapshot of the engine settings. The GUI publishes a new snapshot for every change and the
+//audio thread picks up the latest one once per block, so a block never sees a half-applied change
+public final class EngineParameters {
+
+	public static final EngineParameters DEFAULTS = new EngineParameters(0.0, 4.0, 40000.0, 300.0, ParameterRamp.Shape.LINEAR, 1.0);
+
+	public final double vGain;
+	public final double panDivision;
+	public final double upperLimitFrequency;
+	public final double lowerLimitFrequency;
+	public final ParameterRamp.Shape rampShape;
+	//Distance in metres inside which a source is not attenuated (inverse distance law beyond it)
+	public final double referenceDistance;
+	//Direction tables for these filter settings, built by whoever publishes the snapshot so engines never build one on
+	//the audio thread. The with methods that leave the filter settings alone keep them
+	private final DirectionTable[] directionTables;
+
+	public EngineParameters(double vGainIn, double panDivisionIn, double upperLimitFrequencyIn, double lowerLimitFrequencyIn, ParameterRamp.Shape rampShapeIn, double referenceDistanceIn) {
+		this(vGainIn, panDivisionIn, upperLimitFrequencyIn, lowerLimitFrequencyIn, rampShapeIn, referenceDistanceIn, new DirectionTable[0]);
+	}
+
+	private EngineParameters(double vGainIn, double panDivisionIn, double upperLimitFrequencyIn, double lowerLimitFrequencyIn, ParameterRamp.Shape rampShapeIn, double referenceDistanceIn, DirectionTable[] directionTablesIn) {
+		directionTables = directionTablesIn;
+		vGain = vGainIn;
+		panDivision = panDivisionIn;
+		upperLimitFrequency = upperLimitFrequencyIn;
+		lowerLimitFrequency = lowerLimitFrequencyIn;
+		rampShape = rampShapeIn;
+		referenceDistance = referenceDistanceIn;
+	}
+
+	public EngineParameters withVGain(double value) {
+		return new EngineParameters(value, panDivision, upperLimitFrequency, lowerLimitFrequency, rampShape, referenceDistance, directionTables);
+	}
+
+	public EngineParameters withPanDivision(double value) {
+		return new EngineParameters(vGain, value, upperLimitFrequency, lowerLimitFrequency, rampShape, referenceDistance);
+	}
+
+	public EngineParameters withUpperLimitFrequency(double value) {
+		return new EngineParameters(vGain, panDivision, value, lowerLimitFrequency, rampShape, referenceDistance);
+	}
+
+	public EngineParameters withLowerLimitFrequency(double value) {
+		return new EngineParameters(vGain, panDivision, upperLimitFrequency, value, rampShape, referenceDistance);
+	}
+
+	public EngineParameters withRampShape(ParameterRamp.Shape value) {
+		return new EngineParameters(vGain, panDivision, upperLimitFrequency, lowerLimitFrequency, value, referenceDistance, directionTables);
+	}
+
+	public EngineParameters withReferenceDistance(double value) {
+		return new EngineParameters(vGain, panDivision, upperLimitFrequency, lowerLimitFrequency, rampShape, value, directionTables);
+	}
+
+	//The same settings carrying a direction table for engines of this channel count and rate. Builds the table (or
+	//reuses a cached one), so call it where the snapshot is published, not on the audio thread
+	public EngineParameters withDirectionTable(int channels, int sampleRate) {
+		if (getDirectionTable(channels, sampleRate) != null) return this;
+		DirectionTable[] tables = Arrays.copyOf(directionTables, directionTables.length + 1);
+		tables[directionTables.length] = DirectionTable.forParameters(channels, sampleRate, this);
+		return new EngineParameters(vGain, panDivision, upperLimitFrequency, lowerLimitFrequency, rampShape, referenceDistance, tables);
+	}
+
+	//The table published with this snapshot for the channel count and rate, or null if there is none
+	public DirectionTable getDirectionTable(int channels, int sampleRate) {
+		for (DirectionTable table : directionTables) {
+			if (table.matches(channels, sampleRate, this)) return table;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//In-place iterative radix-2 complex FFT on split real/imaginary arrays. Twiddles and the bit-reversal order are
+//worked out once in the constructor, so a transform does no allocation and no trig
+public final class Fft {
+
+	private final int size;
+	private final double[] cos, sin;
+	private final int[] reversed;
+
+	public Fft(int sizeIn) {
+		if (sizeIn < 2 || Integer.bitCount(sizeIn) != 1) {
+			throw new IllegalArgumentException("FFT size must be a power of two, not " + sizeIn);
+		}
+		size = sizeIn;
+		cos = new double[size / 2];
+		sin = new double[size / 2];
+		for (int k = 0; k < size / 2; k++) {
+			cos[k] = Math.cos(2.0 * Math.PI * k / size);
+			sin[k] = Math.sin(2.0 * Math.PI * k / size);
+		}
+		int bits = Integer.numberOfTrailingZeros(size);
+		reversed = new int[size];
+		for (int k = 0; k < size; k++) {
+			reversed[k] = Integer.reverse(k) >>> (32 - bits);
+		}
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void forward(double[] re, double[] im) {
+		transform(re, im, -1.0);
+	}
+
+	//Inverse transform, including the 1/size scaling
+	public void inverse(double[] re, double[] im) {
+		transform(re, im, 1.0);
+		double scale = 1.0 / size;
+		for (int k = 0; k < size; k++) {
+			re[k] *= scale;
+			im[k] *= scale;
+		}
+	}
+
+	private void transform(double[] re, double[] im, double sign) {
+
+		for (int k = 0; k < size; k++) {
+			int r = reversed[k];
+			if (r > k) {
+				double t = re[k];
+				re[k] = re[r];
+				re[r] = t;
+				t = im[k];
+				im[k] = im[r];
+				im[r] = t;
+			}
+		}
+
+		for (int half = 1; half < size; half <<= 1) {
+			int step = size / (half << 1);
+			for (int start = 0; start < size; start += half << 1) {
+				for (int k = 0; k < half; k++) {
+					double wr = cos[k * step];
+					double wi = sign * sin[k * step];
+					int a = start + k;
+					int b = a + half;
+					double tr = (re[b] * wr) - (im[b] * wi);
+					double ti = (re[b] * wi) + (im[b] * wr);
+					re[b] = re[a] - tr;
+					im[b] = im[a] - ti;
+					re[a] += tr;
+					im[a] += ti;
+				}
+			}
+		}
+	}
+}
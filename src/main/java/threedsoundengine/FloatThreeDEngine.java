@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Arrays;
+
+//Single precision version of ThreeDEngine for many-source mixing, where cache footprint matters more than precision.
+//Samples are addressed as buffer[offset + (j * frameStride) + (i * channelStride)] for frame j, channel i, so the
+//same engine handles interleaved (frameStride = channels, channelStride = 1) and planar (frameStride = 1,
+//channelStride = frames) buffers. The delay stages run fused, one pass per channel, then the front-back filter runs
+//in place on out. in may be the same array as out
+public class FloatThreeDEngine {
+
+	//Settings come from data when the engine belongs to the application, otherwise from setParameters
+	private Main.ThreadData data;
+	private volatile EngineParameters parameters = EngineParameters.DEFAULTS;
+	private volatile boolean bLinearRamps = false;
+	private int channels;
+	private int sampleRate;
+	private int writePositionD = 0;
+	private int writePositionV = 0;
+	private int delayBufferDSize, delayBufferVSize;
+	private int maskD, maskV;
+	private float[][] delayBufferD, delayBufferV;
+	private ParameterRamp delayRampD, gainRampD;
+	//The propagation delay can be hundreds of thousands of samples, so it is kept in double to keep its fraction
+	private double[] delayD;
+	private float[] gainD;
+	private float[] airState;
+	private FrontBackFilterBank filterBank;
+	private double[] filterState;
+	private DirectionTable directionTable;
+	private double[] direction;
+	private ParameterRamp[] panRamp;
+	private ParameterRamp delayRampV, cutoffRamp;
+	private float[][] panGain;
+	private float[] delayV, cutoffPosition;
+	private boolean bFirstBlock = true;
+
+	public FloatThreeDEngine(Main.ThreadData tDataIn, int channelsIn, int sampleRateIn, int bufferSizeIn, double delayBufferDSizeInMs, double delayBufferVSizeInMs) {
+		this(channelsIn, sampleRateIn, bufferSizeIn, delayBufferDSizeInMs, delayBufferVSizeInMs);
+		data = tDataIn;
+		//From now on every snapshot published through data carries the table this engine needs
+		data.addDirectionFormat(channels, sampleRate);
+	}
+
+	public FloatThreeDEngine(int channelsIn, int sampleRateIn, int bufferSizeIn, double delayBufferDSizeInMs, double delayBufferVSizeInMs) {
+
+		channels = channelsIn;
+		sampleRate = sampleRateIn;
+		delayBufferDSize = DistanceModel.powerOfTwo((int)(delayBufferDSizeInMs * sampleRate / 1000.0f) + bufferSizeIn + 4);
+		delayBufferVSize = DistanceModel.powerOfTwo((int)(delayBufferVSizeInMs * sampleRate / 1000.0f));
+		maskD = delayBufferDSize - 1;
+		maskV = delayBufferVSize - 1;
+
+		delayBufferD = new float[channels][delayBufferDSize];
+		delayBufferV = new float[channels][delayBufferVSize];
+		filterBank = FrontBackFilterBank.forSampleRate(sampleRate);
+		filterState = new double[channels * FrontBackFilterBank.STATE_SIZE];
+		direction = new double[DirectionTable.VALUES];
+
+		panRamp = new ParameterRamp[channels];
+		for (int i = 0; i < channels; i++) {
+			panRamp[i] = new ParameterRamp(sampleRate, 0.0);
+		}
+		delayRampV = new ParameterRamp(sampleRate, 0.0);
+		cutoffRamp = new ParameterRamp(sampleRate, 0.0);
+		panGain = new float[channels][bufferSizeIn];
+		delayV = new float[bufferSizeIn];
+		cutoffPosition = new float[bufferSizeIn];
+		delayRampD = new ParameterRamp(sampleRate, 0.0);
+		gainRampD = new ParameterRamp(sampleRate, 0.0);
+		delayD = new double[bufferSizeIn];
+		gainD = new float[bufferSizeIn];
+		airState = new float[channels];
+	}
+
+	//Used when there is no ThreadData
+	public void setParameters(EngineParameters parametersIn) {
+		//The direction table is built here, on the caller's thread, rather than by the next process call
+		parameters = parametersIn.withDirectionTable(channels, sampleRate);
+	}
+
+	//As SpatialRenderer.setLinearRamps
+	public void setLinearRamps(boolean bLinear) {
+		bLinearRamps = bLinear;
+	}
+
+	//Back to the state of a new engine: silent delay lines and filters, and the pan gains fading in again
+	public void reset() {
+		for (int i = 0; i < channels; i++) {
+			Arrays.fill(delayBufferD[i], 0.0f);
+			Arrays.fill(delayBufferV[i], 0.0f);
+			panRamp[i].reset(0.0);
+		}
+		Arrays.fill(filterState, 0.0);
+		Arrays.fill(airState, 0.0f);
+		writePositionD = 0;
+		writePositionV = 0;
+		bFirstBlock = true;
+	}
+
+	//Spatialises frames frames of in into out for one direction (azimuth in [0, 2pi), polar in [0, pi]) and
+	//distance from the listener in metres
+	public void process(float[] in, int inOffset, int inFrameStride, int inChannelStride,
+			float[] out, int outOffset, int outFrameStride, int outChannelStride, int frames, double azimuth, double polar, double distance) {
+
+		//Take one consistent set of settings for the whole block
+		EngineParameters params = data != null ? data.getParameters() : parameters;
+
+		//Control rate: every spatial parameter is looked up once per block
+		if (directionTable == null || !directionTable.matches(channels, sampleRate, params)) {
+			directionTable = params.getDirectionTable(channels, sampleRate);
+			//Only a snapshot published without this engine's format gets here, and the table is then built once
+			if (directionTable == null) directionTable = DirectionTable.forParameters(channels, sampleRate, params);
+		}
+		directionTable.lookup(azimuth, polar, direction);
+		double delayInSamplesV = direction[DirectionTable.DELAY];
+		double cutoffTarget = filterBank.position(direction[DirectionTable.CUTOFF]);
+		double delayInSamplesD = Math.max(DistanceModel.MIN_DELAY, Math.min(DistanceModel.delaySamples(distance, sampleRate), delayBufferDSize - frames - 4));
+		double distanceGain = DistanceModel.gain(distance, params.referenceDistance);
+		float air = (float)DistanceModel.airCoefficient(distance, sampleRate);
+		if (bFirstBlock) {
+			delayRampV.reset(delayInSamplesV);
+			cutoffRamp.reset(cutoffTarget);
+			delayRampD.reset(delayInSamplesD);
+			gainRampD.reset(distanceGain);
+			bFirstBlock = false;
+		}
+
+		//Audio rate: ramp from the previous block's values to this block's
+		ParameterRamp.Shape shape = bLinearRamps ? ParameterRamp.Shape.LINEAR : params.rampShape;
+		for (int i = 0; i < channels; i++) {
+			panRamp[i].setShape(shape);
+			panRamp[i].fill(direction[i == 0 ? DirectionTable.PAN_LEFT : DirectionTable.PAN_RIGHT], panGain[i], frames);
+		}
+		delayRampV.setShape(shape);
+		delayRampV.fill(delayInSamplesV, delayV, frames);
+		cutoffRamp.setShape(shape);
+		cutoffRamp.fill(cutoffTarget, cutoffPosition, frames);
+		delayRampD.setShape(shape);
+		delayRampD.fill(delayInSamplesD, delayD, frames);
+		gainRampD.setShape(shape);
+		gainRampD.fill(distanceGain, gainD, frames);
+
+		float vGain = (float)params.vGain;
+		int writePositionDEnd = writePositionD, writePositionVEnd = writePositionV;
+		for (int i = 0; i < channels; i++) { //channels
+			float[] lineD = delayBufferD[i];
+			float[] lineV = delayBufferV[i];
+			float[] pan = panGain[i];
+			int inIndex = inOffset + (i * inChannelStride);
+			int outIndex = outOffset + (i * outChannelStride);
+			int writeD = writePositionD;
+			int writeV = writePositionV;
+			float airLevel = airState[i];
+			for (int j = 0; j < frames; j++) { //data
+				//Attenuate input
+				float x = in[inIndex] * 0.7f;
+
+				//Distance localisation: store the input, then read it back at the fractional propagation delay,
+				//filter for air absorption, attenuate and pan
+				lineD[writeD] = x;
+				double readPositionD = writeD - delayD[j] + delayBufferDSize;
+				int indexD = (int)readPositionD;
+				float delayedD = DistanceModel.lagrange(lineD, indexD, (float)(readPositionD - indexD), maskD);
+				airLevel = delayedD + (air * (airLevel - delayedD));
+				float d = airLevel * gainD[j] * pan[j];
+				writeD = (writeD + 1) & maskD;
+
+				//Vertical localisation: interpolated read for the delay-and-add model, with feedback
+				float readPosition = writeV - delayV[j] - 1 + delayBufferVSize;
+				int index = (int)readPosition;
+				float fraction = readPosition - index;
+				index &= maskV;
+				int nextIndex = (index + 1) & maskV;
+				float delayed = lineV[index] + (fraction * (lineV[nextIndex] - lineV[index]));
+				float v = (delayed + d) * pan[j];
+				lineV[writeV] = d + (v * vGain);
+				writeV = (writeV + 1) & maskV;
+				out[outIndex] = v;
+
+				inIndex += inFrameStride;
+				outIndex += outFrameStride;
+			}
+			airState[i] = airLevel;
+			writePositionDEnd = writeD;
+			writePositionVEnd = writeV;
+		}
+		writePositionD = writePositionDEnd;
+		writePositionV = writePositionVEnd;
+
+		//Front-back low pass and shelf, in place on the output
+		filterBank.process(out, outOffset, outFrameStride, outChannelStride, channels, frames, cutoffPosition, filterState);
+	}
+}
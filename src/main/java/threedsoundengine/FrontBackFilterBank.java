@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//Front-back filter: a 12 dB/octave low pass followed by a high shelf cut, both trapezoidal state variable filters
+//(stable when the coefficients move every sample). Coefficients are designed once per sample rate on a grid of
+//cut-offs twelve to the octave and interpolated per sample from a fractional grid position, so a sweeping source
+//never designs a filter on the audio thread. Filter state lives in caller-owned flat arrays, STATE_SIZE per channel
+public final class FrontBackFilterBank {
+
+	public static final int STATE_SIZE = 4;
+	//Cut-off of a source in front, where the filter is effectively open
+	public static final double FRONT_CUTOFF = 20000.0;
+
+	private static final double MIN_CUTOFF = 20.0;
+	private static final int STEPS_PER_OCTAVE = 12;
+	private static final double LOW_PASS_K = Math.sqrt(2.0); //Q of 0.707
+	private static final double SHELF_FREQUENCY = 4000.0;
+	private static final double SHELF_K = Math.sqrt(2.0);
+	//The shelf deepens by this much per octave the cut-off drops below FRONT_CUTOFF, down to SHELF_MAX_CUT_DB
+	private static final double SHELF_DB_PER_OCTAVE = -2.0;
+	private static final double SHELF_MAX_CUT_DB = -12.0;
+	private static final int COEFFICIENTS = 9;
+
+	private static volatile FrontBackFilterBank shared;
+
+	private final int sampleRate;
+	private final int steps;
+	private final double[] table;
+
+	private FrontBackFilterBank(int sampleRateIn) {
+		sampleRate = sampleRateIn;
+		double maxCutoff = 0.45 * sampleRate;
+		steps = (int)Math.ceil(log2(maxCutoff / MIN_CUTOFF) * STEPS_PER_OCTAVE);
+		table = new double[(steps + 1) * COEFFICIENTS];
+		for (int n = 0; n <= steps; n++) {
+			double cutoff = Math.min(maxCutoff, MIN_CUTOFF * Math.pow(2.0, (double)n / STEPS_PER_OCTAVE));
+			int index = n * COEFFICIENTS;
+
+			//Low pass
+			double g = Math.tan(Math.PI * cutoff / sampleRate);
+			double a1 = 1.0 / (1.0 + (g * (g + LOW_PASS_K)));
+			table[index] = a1;
+			table[index + 1] = g * a1;
+			table[index + 2] = g * g * a1;
+
+			//High shelf, its cut set by how far behind the cut-off puts the source
+			double octavesBelow = Math.max(0.0, log2(FRONT_CUTOFF / cutoff));
+			double A = Math.pow(10.0, Math.max(SHELF_MAX_CUT_DB, SHELF_DB_PER_OCTAVE * octavesBelow) / 40.0);
+			g = Math.tan(Math.PI * Math.min(SHELF_FREQUENCY, maxCutoff) / sampleRate) * Math.sqrt(A);
+			a1 = 1.0 / (1.0 + (g * (g + SHELF_K)));
+			table[index + 3] = a1;
+			table[index + 4] = g * a1;
+			table[index + 5] = g * g * a1;
+			table[index + 6] = A * A;
+			table[index + 7] = SHELF_K * (1.0 - A) * A;
+			table[index + 8] = 1.0 - (A * A);
+		}
+	}
+
+	//Returns the bank for a sample rate, reusing the last one built if it matches
+	public static FrontBackFilterBank forSampleRate(int sampleRate) {
+		FrontBackFilterBank current = shared;
+		if (current != null && current.sampleRate == sampleRate) return current;
+		current = new FrontBackFilterBank(sampleRate);
+		shared = current;
+		return current;
+	}
+
+	//Fractional grid position of a cut-off, the value to ramp per sample. Worked out once per block
+	public double position(double cutoffFrequency) {
+		double position = log2(cutoffFrequency / MIN_CUTOFF) * STEPS_PER_OCTAVE;
+		if (position < 0.0) return 0.0;
+		if (position > steps) return steps;
+		return position;
+	}
+
+	//Filters planar in[channel][0..frames) into out (may be the same arrays), cut-off grid position per sample
+	public void process(double[][] in, double[][] out, int channels, int frames, double[] positions, double[] state) {
+		process(in, out, 0, channels, frames, positions, state);
+	}
+
+	//As above, writing to out[channel][outOffset..outOffset + frames)
+	public void process(double[][] in, double[][] out, int outOffset, int channels, int frames, double[] positions, double[] state) {
+		for (int j = 0; j < frames; j++) { //data
+			int index = gridIndex(positions[j]);
+			double f = positions[j] - (index / COEFFICIENTS);
+			double la1 = lerp(index, f);
+			double la2 = lerp(index + 1, f);
+			double la3 = lerp(index + 2, f);
+			double sa1 = lerp(index + 3, f);
+			double sa2 = lerp(index + 4, f);
+			double sa3 = lerp(index + 5, f);
+			double m0 = lerp(index + 6, f);
+			double m1 = lerp(index + 7, f);
+			double m2 = lerp(index + 8, f);
+			for (int i = 0; i < channels; i++) { //channels
+				out[i][outOffset + j] = filter(in[i][j], state, i * STATE_SIZE, la1, la2, la3, sa1, sa2, sa3, m0, m1, m2);
+			}
+		}
+	}
+
+	//As above for a float buffer addressed as buffer[offset + (j * frameStride) + (i * channelStride)], in place
+	public void process(float[] buffer, int offset, int frameStride, int channelStride, int channels, int frames, float[] positions, double[] state) {
+		for (int j = 0; j < frames; j++) { //data
+			int index = gridIndex(positions[j]);
+			double f = positions[j] - (index / COEFFICIENTS);
+			double la1 = lerp(index, f);
+			double la2 = lerp(index + 1, f);
+			double la3 = lerp(index + 2, f);
+			double sa1 = lerp(index + 3, f);
+			double sa2 = lerp(index + 4, f);
+			double sa3 = lerp(index + 5, f);
+			double m0 = lerp(index + 6, f);
+			double m1 = lerp(index + 7, f);
+			double m2 = lerp(index + 8, f);
+			int sample = offset + (j * frameStride);
+			for (int i = 0; i < channels; i++) { //channels
+				buffer[sample] = (float)filter(buffer[sample], state, i * STATE_SIZE, la1, la2, la3, sa1, sa2, sa3, m0, m1, m2);
+				sample += channelStride;
+			}
+		}
+	}
+
+	//Table offset of the grid point at or below a position, leaving room for the point above
+	private int gridIndex(double position) {
+		int n = (int)position;
+		if (n >= steps) n = steps - 1;
+		else if (n < 0) n = 0;
+		return n * COEFFICIENTS;
+	}
+
+	private double lerp(int index, double f) {
+		return table[index] + (f * (table[index + COEFFICIENTS] - table[index]));
+	}
+
+	private static double filter(double x, double[] state, int s, double la1, double la2, double la3,
+			double sa1, double sa2, double sa3, double m0, double m1, double m2) {
+
+		//Low pass
+		double v3 = x - state[s + 1];
+		double v1 = (la1 * state[s]) + (la2 * v3);
+		double v2 = state[s + 1] + (la2 * state[s]) + (la3 * v3);
+		state[s] = (2.0 * v1) - state[s];
+		state[s + 1] = (2.0 * v2) - state[s + 1];
+		double low = v2;
+
+		//High shelf
+		v3 = low - state[s + 3];
+		v1 = (sa1 * state[s + 2]) + (sa2 * v3);
+		v2 = state[s + 3] + (sa2 * state[s + 2]) + (sa3 * v3);
+		state[s + 2] = (2.0 * v1) - state[s + 2];
+		state[s + 3] = (2.0 * v2) - state[s + 3];
+		return (m0 * low) + (m1 * v1) + (m2 * v2);
+	}
+
+	private static double log2(double value) {
+		return Math.log(value) / Math.log(2.0);
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//Public entry point for running the engine inside another audio host, with no dependency on Main or its ThreadData.
+//The host owns every buffer: process reads its input and writes its output in place at the given offsets, and
+//nothing is copied out or allocated per call. Typical use:
+//  HostRenderer renderer = new HostRenderer(false);
+//  renderer.prepare(48000, 512);                     //on setup, before the first process
+//  renderer.setSourcePosition(1.0, 0.0, 2.0);        //any time; applies from the next process
+//  renderer.process(in, 0, out, 0, frames);          //on the audio thread
+//  renderer.reset();                                 //on transport jumps, to drop the tails
+//Output is always stereo. Positions are in metres with y up; the direction is taken from the listener to the source
+public class HostRenderer {
+
+	public static final int CHANNELS = 2;
+	private static final double DELAY_D_MS = 5000.0;
+	private static final double DELAY_V_MS = 5.0;
+
+	private final boolean bSinglePrecision;
+	private ThreeDEngine engine;
+	private FloatThreeDEngine floatEngine;
+	private ReverbBus reverb;
+	private int sampleRate;
+	private int maxBlock;
+	private volatile EngineParameters parameters = EngineParameters.DEFAULTS;
+	private volatile boolean bReverb = false;
+	private volatile double sourceX = 0.0, sourceY = 0.0, sourceZ = 1.0;
+	private volatile double listenerX = 0.0, listenerY = 0.0, listenerZ = 0.0;
+
+	//bSinglePrecision selects the interleaved float process instead of the planar double one
+	public HostRenderer(boolean bSinglePrecisionIn) {
+		bSinglePrecision = bSinglePrecisionIn;
+	}
+
+	//Allocates everything process needs for blocks of up to maxBlockIn frames. Not real time safe; calling it again
+	//rebuilds the renderer, dropping its state
+	public void prepare(int sampleRateIn, int maxBlockIn) {
+		if (sampleRateIn <= 0 || maxBlockIn <= 0) {
+			throw new IllegalArgumentException("Invalid sample rate " + sampleRateIn + " or block size " + maxBlockIn);
+		}
+		sampleRate = sampleRateIn;
+		maxBlock = maxBlockIn;
+		parameters = parameters.withDirectionTable(CHANNELS, sampleRate);
+		if (bSinglePrecision) {
+			floatEngine = new FloatThreeDEngine(CHANNELS, sampleRate, maxBlock, DELAY_D_MS, DELAY_V_MS);
+			floatEngine.setParameters(parameters);
+		}
+		else {
+			engine = new ThreeDEngine(CHANNELS, sampleRate, maxBlock, DELAY_D_MS, DELAY_V_MS);
+			engine.setParameters(parameters);
+			engine.setReverb(bReverb);
+			reverb = new ReverbBus(CHANNELS, sampleRate, maxBlock);
+		}
+	}
+
+	//Clears delay lines, filters and reverb tail without reallocating
+	public void reset() {
+		checkPrepared();
+		if (floatEngine != null) floatEngine.reset();
+		else {
+			engine.reset();
+			reverb.clear();
+		}
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getMaxBlock() {
+		return maxBlock;
+	}
+
+	public boolean isSinglePrecision() {
+		return bSinglePrecision;
+	}
+
+	public void setSourcePosition(double x, double y, double z) {
+		sourceX = x;
+		sourceY = y;
+		sourceZ = z;
+	}
+
+	public void setListenerPosition(double x, double y, double z) {
+		listenerX = x;
+		listenerY = y;
+		listenerZ = z;
+	}
+
+	//Builds the direction table for the new settings here, on the host's thread, so process never has to
+	public void setParameters(EngineParameters parametersIn) {
+		parameters = sampleRate > 0 ? parametersIn.withDirectionTable(CHANNELS, sampleRate) : parametersIn;
+		if (engine != null) engine.setParameters(parameters);
+		if (floatEngine != null) floatEngine.setParameters(parameters);
+	}
+
+	public EngineParameters getParameters() {
+		return parameters;
+	}
+
+	//Late reverb, double precision only
+	public void setReverb(boolean bReverbIn) {
+		if (bSinglePrecision && bReverbIn) throw new IllegalArgumentException("Reverb is only available in double precision");
+		bReverb = bReverbIn;
+		if (engine != null) engine.setReverb(bReverbIn);
+	}
+
+	//Spatialises planar in[channel][inOffset..inOffset + frames) into out[0..1][outOffset..outOffset + frames).
+	//in may be mono or stereo; frames is at most the prepared block size
+	public void process(double[][] in, int inOffset, double[][] out, int outOffset, int frames) {
+		if (engine == null) {
+			throw new IllegalStateException(bSinglePrecision ? "This renderer takes interleaved float blocks" : "prepare has not been called");
+		}
+		checkBlock(frames, out.length);
+		double x = sourceX - listenerX, y = sourceY - listenerY, z = sourceZ - listenerZ;
+		//Spherical coordinates swap the y and z axes
+		engine.process(in, inOffset, out, outOffset, frames, ProcessAudio.azimuth(x, z), ProcessAudio.polar(x, z, y), Math.sqrt((x * x) + (y * y) + (z * z)));
+		double[] send = engine.getReverbSend();
+		if (send != null) reverb.addSend(send, frames);
+		reverb.process(out, outOffset, frames);
+	}
+
+	//Spatialises interleaved in (inChannels of 1 or 2 per frame, from inOffset) into interleaved stereo out from outOffset.
+	//in and out may be the same array when inChannels is 2
+	public void process(float[] in, int inOffset, int inChannels, float[] out, int outOffset, int frames) {
+		if (floatEngine == null) {
+			throw new IllegalStateException(bSinglePrecision ? "prepare has not been called" : "This renderer takes planar double blocks");
+		}
+		if (inChannels != 1 && inChannels != CHANNELS) {
+			throw new IllegalArgumentException("Input must be mono or stereo, not " + inChannels + " channels");
+		}
+		checkBlock(frames, CHANNELS);
+		double x = sourceX - listenerX, y = sourceY - listenerY, z = sourceZ - listenerZ;
+		//A channel stride of 0 feeds a mono input to both channels
+		floatEngine.process(in, inOffset, inChannels, inChannels == 1 ? 0 : 1, out, outOffset, CHANNELS, 1, frames,
+				ProcessAudio.azimuth(x, z), ProcessAudio.polar(x, z, y), Math.sqrt((x * x) + (y * y) + (z * z)));
+	}
+
+	private void checkPrepared() {
+		if (engine == null && floatEngine == null) throw new IllegalStateException("prepare has not been called");
+	}
+
+	private void checkBlock(int frames, int outChannels) {
+		if (frames < 0 || frames > maxBlock) {
+			throw new IllegalArgumentException("Blocks must be up to " + maxBlock + " frames, not " + frames);
+		}
+		if (outChannels < CHANNELS) {
+			throw new IllegalArgumentException("Output must be stereo");
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//HRIR pairs for HrirRenderer, either built on the heap (HrirSet) or memory-mapped from a preprocessed file (HrirStore)
+public interface HrirFilters {
+
+	int getSampleRate();
+
+	//Index of the filter pair nearest to a direction in engine angles (see SpatialRenderer)
+	int nearest(double azimuth, double polar);
+
+	//Frequency-domain partitions for convolution in blocks of blockSize frames
+	Partitioned forBlockSize(int blockSize);
+
+	//One direction's filters cut into block-sized partitions and transformed with an FFT of twice the block size.
+	//The left ear is the real part and the right ear the imaginary part, so one complex product filters both ears
+	interface Partitioned {
+
+		int getPartitions();
+
+		//acc += x * H[direction][partition], bin by bin over the 2 * blockSize bins
+		void multiplyAccumulate(int direction, int partition, double[] xRe, double[] xIm, double[] accRe, double[] accIm);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Arrays;
+
+//Binaural renderer that convolves the source with the nearest HRIR pair of an HrirSet or HrirStore, using uniformly partitioned
+//overlap-save convolution: FFT size is twice the block size and the impulse response is cut into block-sized
+//partitions, so every block does the same work (one forward FFT, one multiply-accumulate per partition and one
+//inverse FFT) however the source moves. When the nearest HRIR changes, the block is filtered with both the old and
+//the new pair and crossfaded. The input is mixed to mono; the output is always [left, right]
+public class HrirRenderer implements SpatialRenderer {
+
+	private final HrirFilters hrirFilters;
+	private final int blockSize;
+	private final int fftSize;
+	private final int partitions;
+	private final Fft fft;
+	private final HrirFilters.Partitioned filters;
+	private final double[] history;
+	//Frequency-domain delay line: spectra of the last partitions input blocks, newest at fdlHead
+	private final double[][] fdlRe, fdlIm;
+	private int fdlHead = 0;
+	private final double[] accRe, accIm;
+	private final double[][] outBuffer;
+	private int current = -1;
+
+	public HrirRenderer(HrirFilters hrirFiltersIn, int sampleRate, int blockSizeIn) {
+		if (hrirFiltersIn.getSampleRate() != sampleRate) {
+			throw new IllegalArgumentException("HRIR sample rate " + hrirFiltersIn.getSampleRate() + " does not match the engine rate " + sampleRate);
+		}
+		hrirFilters = hrirFiltersIn;
+		blockSize = blockSizeIn;
+		fftSize = 2 * blockSize;
+		filters = hrirFilters.forBlockSize(blockSize);
+		partitions = filters.getPartitions();
+		fft = new Fft(fftSize);
+		history = new double[fftSize];
+		fdlRe = new double[partitions][fftSize];
+		fdlIm = new double[partitions][fftSize];
+		accRe = new double[fftSize];
+		accIm = new double[fftSize];
+		outBuffer = new double[2][blockSize];
+	}
+
+	@Override
+	public double[][] processDirection(double[][] inputBuffer, double azimuth, double polar) {
+
+		int frames = inputBuffer[0].length;
+		if (frames != blockSize) {
+			throw new IllegalArgumentException("HrirRenderer needs blocks of " + blockSize + " frames, not " + frames);
+		}
+
+		//Slide the input window on by one block, mixing to mono with the same headroom as ThreeDEngine
+		System.arraycopy(history, blockSize, history, 0, blockSize);
+		double gain = 0.7 / inputBuffer.length;
+		for (int j = 0; j < blockSize; j++) { //data
+			double sum = 0.0;
+			for (int i = 0; i < inputBuffer.length; i++) { //channels
+				sum += inputBuffer[i][j];
+			}
+			history[blockSize + j] = sum * gain;
+		}
+
+		//Transform the window into the newest slot of the delay line
+		fdlHead = fdlHead + 1 == partitions ? 0 : fdlHead + 1;
+		double[] xRe = fdlRe[fdlHead];
+		double[] xIm = fdlIm[fdlHead];
+		System.arraycopy(history, 0, xRe, 0, fftSize);
+		Arrays.fill(xIm, 0.0);
+		fft.forward(xRe, xIm);
+
+		int next = hrirFilters.nearest(azimuth, polar);
+		if (current < 0) current = next;
+
+		if (next == current) {
+			convolve(current);
+			for (int j = 0; j < blockSize; j++) { //data
+				outBuffer[0][j] = accRe[blockSize + j];
+				outBuffer[1][j] = accIm[blockSize + j];
+			}
+		}
+		else {
+			//Old filter first, then fade to the new one across the block
+			convolve(current);
+			for (int j = 0; j < blockSize; j++) { //data
+				outBuffer[0][j] = accRe[blockSize + j];
+				outBuffer[1][j] = accIm[blockSize + j];
+			}
+			convolve(next);
+			for (int j = 0; j < blockSize; j++) { //data
+				double w = (j + 1.0) / blockSize;
+				outBuffer[0][j] += w * (accRe[blockSize + j] - outBuffer[0][j]);
+				outBuffer[1][j] += w * (accIm[blockSize + j] - outBuffer[1][j]);
+			}
+			current = next;
+		}
+		return outBuffer;
+	}
+
+	@Override
+	public void reset() {
+		Arrays.fill(history, 0.0);
+		for (int p = 0; p < partitions; p++) {
+			Arrays.fill(fdlRe[p], 0.0);
+			Arrays.fill(fdlIm[p], 0.0);
+		}
+		current = -1;
+	}
+
+	//Sums the products of the delay line with one direction's partitions and transforms back to the time domain
+	private void convolve(int direction) {
+		Arrays.fill(accRe, 0.0);
+		Arrays.fill(accIm, 0.0);
+		int slot = fdlHead;
+		for (int p = 0; p < partitions; p++) {
+			filters.multiplyAccumulate(direction, p, fdlRe[slot], fdlIm[slot], accRe, accIm);
+			slot = slot == 0 ? partitions - 1 : slot - 1;
+		}
+		fft.inverse(accRe, accIm);
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+//A set of head-related impulse response pairs measured (or modelled) on a grid of directions.
+//Directions use the usual HRIR convention: azimuth in degrees clockwise from straight ahead, elevation in degrees up
+public class HrirSet implements HrirFilters {
+
+	//MIT KEMAR compact naming, e.g. H-20e045a.wav for elevation -20, azimuth 45 (stereo, left ear first)
+	private static final Pattern KEMAR_NAME = Pattern.compile("H(-?\\d+)e(\\d+)a\\.wav", Pattern.CASE_INSENSITIVE);
+	private static final double HEAD_RADIUS = 0.0875;
+	private static final double SPEED_OF_SOUND = 343.0;
+
+	private final int sampleRate;
+	private final int length;
+	private final double[] azimuths, elevations;
+	//Unit vectors (right, front, up) of each direction, for the nearest neighbour search
+	private final double[][] vectors;
+	private final double[][][] irs;
+	private final SphereIndex index;
+	private final Map<Integer, Partitioned> partitioned = new HashMap<>();
+
+	public HrirSet(int sampleRateIn, double[] azimuthsIn, double[] elevationsIn, double[][][] irsIn) {
+		sampleRate = sampleRateIn;
+		azimuths = azimuthsIn;
+		elevations = elevationsIn;
+		irs = irsIn;
+		int max = 0;
+		for (double[][] ir : irs) {
+			max = Math.max(max, Math.max(ir[0].length, ir[1].length));
+		}
+		length = max;
+		vectors = new double[azimuths.length][];
+		for (int n = 0; n < azimuths.length; n++) {
+			double az = Math.toRadians(azimuths[n]);
+			double el = Math.toRadians(elevations[n]);
+			vectors[n] = new double[] {Math.cos(el) * Math.sin(az), Math.cos(el) * Math.cos(az), Math.sin(el)};
+		}
+		index = new SphereIndex(vectors);
+	}
+
+	//Loads every H<elevation>e<azimuth>a.wav in a directory. Sets measured on one side only (azimuths up to 180)
+	//are mirrored to the other side by swapping the ears
+	public static HrirSet load(File directory) throws UnsupportedAudioFileException, IOException {
+
+		List<File> files = new ArrayList<>();
+		collect(directory, files);
+		if (files.isEmpty()) throw new IOException("No H<elevation>e<azimuth>a.wav files in " + directory);
+
+		List<double[]> angles = new ArrayList<>();
+		List<double[][]> irs = new ArrayList<>();
+		int sampleRate = 0;
+		double maxAzimuth = 0;
+		for (File file : files) {
+			Matcher m = KEMAR_NAME.matcher(file.getName());
+			m.matches();
+			try (SampleSource source = SampleSource.open(file)) {
+				if (source.getFormat().getChannels() != 2) throw new UnsupportedAudioFileException("HRIR file is not stereo: " + file);
+				int rate = (int)source.getFormat().getSampleRate();
+				if (sampleRate != 0 && rate != sampleRate) throw new UnsupportedAudioFileException("Mixed sample rates in " + directory);
+				sampleRate = rate;
+				double[][] ir = new double[2][(int)source.getFrameLength()];
+				source.read(ir, 0, ir[0].length);
+				double scale = 1.0 / new PcmCodec(source.getFormat()).getFullScale();
+				for (int i = 0; i < 2; i++) {
+					for (int j = 0; j < ir[i].length; j++) {
+						ir[i][j] *= scale;
+					}
+				}
+				double azimuth = Integer.parseInt(m.group(2));
+				maxAzimuth = Math.max(maxAzimuth, azimuth);
+				angles.add(new double[] {azimuth, Integer.parseInt(m.group(1))});
+				irs.add(ir);
+			}
+		}
+
+		if (maxAzimuth <= 180) {
+			int count = angles.size();
+			for (int n = 0; n < count; n++) {
+				double azimuth = angles.get(n)[0];
+				if (azimuth == 0 || azimuth == 180) continue;
+				angles.add(new double[] {360 - azimuth, angles.get(n)[1]});
+				irs.add(new double[][] {irs.get(n)[1], irs.get(n)[0]});
+			}
+		}
+
+		double[] azimuths = new double[angles.size()];
+		double[] elevations = new double[angles.size()];
+		for (int n = 0; n < angles.size(); n++) {
+			azimuths[n] = angles.get(n)[0];
+			elevations[n] = angles.get(n)[1];
+		}
+		return new HrirSet(sampleRate, azimuths, elevations, irs.toArray(new double[0][][]));
+	}
+
+	private static void collect(File directory, List<File> files) {
+		File[] entries = directory.listFiles();
+		if (entries == null) return;
+		for (File entry : entries) {
+			if (entry.isDirectory()) collect(entry, files);
+			else if (KEMAR_NAME.matcher(entry.getName()).matches()) files.add(entry);
+		}
+	}
+
+	//Rigid spherical head model (Brown and Duda): a one-pole/one-zero head shadow filter and the Woodworth delay
+	//for each ear, every 10 degrees from -40 to 90 elevation. No pinna cues, but it needs no measured data
+	public static HrirSet sphericalHead(int sampleRate) {
+
+		int length = 128;
+		List<double[]> angles = new ArrayList<>();
+		for (int elevation = -40; elevation <= 90; elevation += 10) {
+			int step = elevation == 90 ? 360 : 10;
+			for (int azimuth = 0; azimuth < 360; azimuth += step) {
+				angles.add(new double[] {azimuth, elevation});
+			}
+		}
+
+		double[] azimuths = new double[angles.size()];
+		double[] elevations = new double[angles.size()];
+		double[][][] irs = new double[angles.size()][2][length];
+		double beta = 2.0 * SPEED_OF_SOUND / HEAD_RADIUS;
+		double K = 2.0 * sampleRate;
+		for (int n = 0; n < angles.size(); n++) {
+			azimuths[n] = angles.get(n)[0];
+			elevations[n] = angles.get(n)[1];
+			double az = Math.toRadians(azimuths[n]);
+			double el = Math.toRadians(elevations[n]);
+			double right = Math.cos(el) * Math.sin(az);
+			for (int ear = 0; ear < 2; ear++) {
+				//Angle between the source and the ear axis (left ear at -x, right ear at +x)
+				double theta = Math.acos(Math.max(-1.0, Math.min(1.0, ear == 0 ? -right : right)));
+				double alpha = 1.05 + (0.95 * Math.cos(theta * 180.0 / 150.0));
+				double delay = (HEAD_RADIUS / SPEED_OF_SOUND) * (theta < Math.PI / 2 ? 1.0 - Math.cos(theta) : 1.0 + theta - (Math.PI / 2));
+				double delaySamples = delay * sampleRate;
+
+				//Fractionally delayed impulse through the bilinear transform of (alpha s + beta) / (s + beta)
+				double b0 = ((alpha * K) + beta) / (K + beta);
+				double b1 = (beta - (alpha * K)) / (K + beta);
+				double a1 = (beta - K) / (K + beta);
+				int whole = (int)delaySamples;
+				double fraction = delaySamples - whole;
+				double xOld = 0, yOld = 0;
+				double[] ir = irs[n][ear];
+				for (int j = 0; j < length; j++) {
+					double x = j == whole ? 1.0 - fraction : (j == whole + 1 ? fraction : 0.0);
+					double y = (b0 * x) + (b1 * xOld) - (a1 * yOld);
+					ir[j] = y;
+					xOld = x;
+					yOld = y;
+				}
+			}
+		}
+		return new HrirSet(sampleRate, azimuths, elevations, irs);
+	}
+
+	@Override
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public int size() {
+		return irs.length;
+	}
+
+	public double getAzimuth(int index) {
+		return azimuths[index];
+	}
+
+	public double getElevation(int index) {
+		return elevations[index];
+	}
+
+	//[left, right] impulse responses of one direction
+	public double[][] getIr(int index) {
+		return irs[index];
+	}
+
+	//Unit vector (right, front, up) of a direction
+	public double[] getVector(int index) {
+		return vectors[index];
+	}
+
+	public SphereIndex getIndex() {
+		return index;
+	}
+
+	@Override
+	public int nearest(double azimuth, double polar) {
+		return index.nearest(Math.sin(polar) * Math.cos(azimuth), Math.sin(polar) * Math.sin(azimuth), Math.cos(polar));
+	}
+
+	//Worked out on first request and shared by every renderer using this set
+	@Override
+	public synchronized Partitioned forBlockSize(int blockSize) {
+		Partitioned result = partitioned.get(blockSize);
+		if (result == null) {
+			result = new HeapPartitioned(spectra(blockSize), Math.max(1, (length + blockSize - 1) / blockSize), 2 * blockSize);
+			partitioned.put(blockSize, result);
+		}
+		return result;
+	}
+
+	//Partitioned spectra indexed [direction][0 real, 1 imaginary][partition * 2 * blockSize + bin]
+	public double[][][] spectra(int blockSize) {
+
+		int fftSize = 2 * blockSize;
+		int partitions = Math.max(1, (length + blockSize - 1) / blockSize);
+		Fft fft = new Fft(fftSize);
+		double[][][] result = new double[irs.length][2][partitions * fftSize];
+		double[] re = new double[fftSize];
+		double[] im = new double[fftSize];
+		for (int n = 0; n < irs.length; n++) {
+			for (int p = 0; p < partitions; p++) {
+				for (int j = 0; j < fftSize; j++) {
+					int k = (p * blockSize) + j;
+					re[j] = j < blockSize && k < irs[n][0].length ? irs[n][0][k] : 0.0;
+					im[j] = j < blockSize && k < irs[n][1].length ? irs[n][1][k] : 0.0;
+				}
+				fft.forward(re, im);
+				System.arraycopy(re, 0, result[n][0], p * fftSize, fftSize);
+				System.arraycopy(im, 0, result[n][1], p * fftSize, fftSize);
+			}
+		}
+		return result;
+	}
+
+	private static final class HeapPartitioned implements Partitioned {
+
+		private final double[][][] spectra;
+		private final int partitions;
+		private final int fftSize;
+
+		HeapPartitioned(double[][][] spectraIn, int partitionsIn, int fftSizeIn) {
+			spectra = spectraIn;
+			partitions = partitionsIn;
+			fftSize = fftSizeIn;
+		}
+
+		@Override
+		public int getPartitions() {
+			return partitions;
+		}
+
+		@Override
+		public void multiplyAccumulate(int direction, int partition, double[] xRe, double[] xIm, double[] accRe, double[] accIm) {
+			double[] hRe = spectra[direction][0];
+			double[] hIm = spectra[direction][1];
+			int offset = partition * fftSize;
+			for (int k = 0; k < fftSize; k++) {
+				double a = xRe[k], b = xIm[k];
+				double c = hRe[offset + k], d = hIm[offset + k];
+				accRe[k] += (a * c) - (b * d);
+				accIm[k] += (a * d) + (b * c);
+			}
+		}
+	}
+}
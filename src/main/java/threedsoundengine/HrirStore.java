@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Preprocessed HRIR set, memory-mapped read-only so opening is near-instant and the filters are shared through the
+//page cache. open() also returns the same instance for the same file within the JVM. Layout, little-endian:
+//  header   magic, version, sampleRate, count, irLength, blockSize, partitions, gridSize, candidateCount (ints),
+//           then the byte offsets of the five sections (longs)
+//  angles   count * (azimuth, elevation) floats, HRIR convention in degrees
+//  irs      count * 2 ears * irLength floats
+//  spectra  count * (real, imaginary) * partitions * 2 * blockSize floats, left ear real, right ear imaginary
+//  cells    6 * gridSize^2 + 1 ints, offsets into candidates (SphereIndex)
+//  candidates ints
+public final class HrirStore implements HrirFilters {
+
+	private static final int MAGIC = 0x52484433; //"3DHR"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = (9 * 4) + (5 * 8);
+	private static final ConcurrentHashMap<String, HrirStore> open = new ConcurrentHashMap<>();
+
+	private final int sampleRate;
+	private final int count;
+	private final int irLength;
+	private final int blockSize;
+	private final int partitions;
+	private final FloatBuffer angles, irs, spectra;
+	private final SphereIndex index;
+	private final Partitioned mapped;
+	private HrirSet heap;
+
+	private HrirStore(File file) throws IOException {
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) throw new IOException("HRIR store too large to map: " + file);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IOException("Not an HRIR store: " + file);
+			if (buffer.getInt(4) != VERSION) throw new IOException("Unsupported HRIR store version " + buffer.getInt(4) + ": " + file);
+
+			sampleRate = buffer.getInt(8);
+			count = buffer.getInt(12);
+			irLength = buffer.getInt(16);
+			blockSize = buffer.getInt(20);
+			partitions = buffer.getInt(24);
+			int gridSize = buffer.getInt(28);
+			int candidateCount = buffer.getInt(32);
+			angles = floats(buffer, buffer.getLong(36), count * 2);
+			irs = floats(buffer, buffer.getLong(44), count * 2 * irLength);
+			spectra = floats(buffer, buffer.getLong(52), count * 2 * partitions * 2 * blockSize);
+			IntBuffer cellBuffer = ints(buffer, buffer.getLong(60), (6 * gridSize * gridSize) + 1);
+			IntBuffer candidateBuffer = ints(buffer, buffer.getLong(68), candidateCount);
+
+			//The index is tiny, so it is copied to the heap for the fastest lookups
+			double[][] vectors = new double[count][];
+			for (int n = 0; n < count; n++) {
+				double az = Math.toRadians(angles.get(2 * n));
+				double el = Math.toRadians(angles.get((2 * n) + 1));
+				vectors[n] = new double[] {Math.cos(el) * Math.sin(az), Math.cos(el) * Math.cos(az), Math.sin(el)};
+			}
+			int[] cells = new int[cellBuffer.capacity()];
+			cellBuffer.get(0, cells);
+			int[] candidates = new int[candidateCount];
+			candidateBuffer.get(0, candidates);
+			index = new SphereIndex(vectors, gridSize, cells, candidates);
+			mapped = new MappedPartitioned();
+		}
+	}
+
+	//Opens a store, or returns the instance already open for the same file
+	public static HrirStore open(File file) throws IOException {
+		String key = file.getCanonicalPath();
+		HrirStore store = open.get(key);
+		if (store != null) return store;
+		store = new HrirStore(file);
+		HrirStore existing = open.putIfAbsent(key, store);
+		return existing != null ? existing : store;
+	}
+
+	//Writes a set with its spectra pre-transformed for blockSize frames and its sphere index
+	public static void write(HrirSet set, int blockSize, File file) throws IOException {
+
+		int count = set.size();
+		int irLength = set.getLength();
+		int partitions = set.forBlockSize(blockSize).getPartitions();
+		int fftSize = 2 * blockSize;
+		SphereIndex index = set.getIndex();
+		int[] cells = index.getCellOffsets();
+		int[] candidates = index.getCandidates();
+
+		long anglesOffset = HEADER_SIZE;
+		long irsOffset = anglesOffset + (4L * count * 2);
+		long spectraOffset = irsOffset + (4L * count * 2 * irLength);
+		long cellsOffset = spectraOffset + (4L * count * 2 * partitions * fftSize);
+		long candidatesOffset = cellsOffset + (4L * cells.length);
+		long size = candidatesOffset + (4L * candidates.length);
+		if (size > Integer.MAX_VALUE) throw new IOException("HRIR store would be too large to map (" + size + " bytes)");
+
+		ByteBuffer buffer = ByteBuffer.allocate((int)size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(set.getSampleRate()).putInt(count).putInt(irLength)
+			.putInt(blockSize).putInt(partitions).putInt(index.getGridSize()).putInt(candidates.length);
+		buffer.putLong(anglesOffset).putLong(irsOffset).putLong(spectraOffset).putLong(cellsOffset).putLong(candidatesOffset);
+		for (int n = 0; n < count; n++) {
+			buffer.putFloat((float)set.getAzimuth(n)).putFloat((float)set.getElevation(n));
+		}
+		for (int n = 0; n < count; n++) {
+			double[][] ir = set.getIr(n);
+			for (int ear = 0; ear < 2; ear++) {
+				for (int j = 0; j < irLength; j++) {
+					buffer.putFloat(j < ir[ear].length ? (float)ir[ear][j] : 0.0f);
+				}
+			}
+		}
+		double[][][] spectra = set.spectra(blockSize);
+		for (int n = 0; n < count; n++) {
+			for (int part = 0; part < 2; part++) {
+				for (double value : spectra[n][part]) {
+					buffer.putFloat((float)value);
+				}
+			}
+		}
+		for (int value : cells) {
+			buffer.putInt(value);
+		}
+		for (int value : candidates) {
+			buffer.putInt(value);
+		}
+
+		buffer.flip();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+			channel.truncate(0);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	private static FloatBuffer floats(MappedByteBuffer buffer, long offset, int length) {
+		return buffer.slice((int)offset, length * 4).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+	}
+
+	private static IntBuffer ints(MappedByteBuffer buffer, long offset, int length) {
+		return buffer.slice((int)offset, length * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	}
+
+	@Override
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public double getAzimuth(int n) {
+		return angles.get(2 * n);
+	}
+
+	public double getElevation(int n) {
+		return angles.get((2 * n) + 1);
+	}
+
+	//[left, right] impulse responses of one direction, copied out of the mapping
+	public double[][] getIr(int n) {
+		double[][] ir = new double[2][irLength];
+		for (int ear = 0; ear < 2; ear++) {
+			for (int j = 0; j < irLength; j++) {
+				ir[ear][j] = irs.get((((2 * n) + ear) * irLength) + j);
+			}
+		}
+		return ir;
+	}
+
+	@Override
+	public int nearest(double azimuth, double polar) {
+		return index.nearest(Math.sin(polar) * Math.cos(azimuth), Math.sin(polar) * Math.sin(azimuth), Math.cos(polar));
+	}
+
+	//Straight from the mapping for the block size the store was built for; other sizes are transformed on the heap
+	//from the stored impulse responses
+	@Override
+	public synchronized Partitioned forBlockSize(int blockSizeIn) {
+		if (blockSizeIn == blockSize) return mapped;
+		if (heap == null) {
+			double[] azimuths = new double[count];
+			double[] elevations = new double[count];
+			double[][][] irPairs = new double[count][][];
+			for (int n = 0; n < count; n++) {
+				azimuths[n] = getAzimuth(n);
+				elevations[n] = getElevation(n);
+				irPairs[n] = getIr(n);
+			}
+			heap = new HrirSet(sampleRate, azimuths, elevations, irPairs);
+		}
+		return heap.forBlockSize(blockSizeIn);
+	}
+
+	private final class MappedPartitioned implements Partitioned {
+
+		private final int fftSize = 2 * blockSize;
+
+		@Override
+		public int getPartitions() {
+			return partitions;
+		}
+
+		@Override
+		public void multiplyAccumulate(int direction, int partition, double[] xRe, double[] xIm, double[] accRe, double[] accIm) {
+			int re = ((direction * 2 * partitions) + partition) * fftSize;
+			int im = re + (partitions * fftSize);
+			FloatBuffer h = spectra;
+			for (int k = 0; k < fftSize; k++) {
+				double a = xRe[k], b = xIm[k];
+				double c = h.get(re + k), d = h.get(im + k);
+				accRe[k] += (a * c) - (b * d);
+				accIm[k] += (a * d) + (b * c);
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.File;
+import java.io.IOException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+//Converts a KEMAR directory or the spherical head model into a memory-mappable HrirStore file
+public class HrirStoreBuilder {
+
+	public static void main(String[] args) {
+
+		if (args.length < 2) {
+			printUsage();
+			System.exit(1);
+		}
+
+		try {
+			int blockSize = StreamAudio.BUFFER_SIZE / 2;
+			for (int i = 2; i < args.length; i++) {
+				switch (args[i]) {
+				case "--block-size":
+					blockSize = Integer.parseInt(args[++i]);
+					break;
+				default:
+					System.out.println("Unknown option: " + args[i]);
+					printUsage();
+					System.exit(1);
+				}
+			}
+
+			long startTime = System.nanoTime();
+			HrirSet set;
+			if (args[0].startsWith("spherical:")) set = HrirSet.sphericalHead(Integer.parseInt(args[0].substring("spherical:".length())));
+			else set = HrirSet.load(new File(args[0]));
+			File out = new File(args[1]);
+			HrirStore.write(set, blockSize, out);
+			System.out.println(String.format("Wrote %d directions, %d taps, block size %d to %s (%d bytes) in %.3f s", set.size(), set.getLength(), blockSize, out, out.length(), (System.nanoTime() - startTime) / 1e9));
+		}
+		catch (IOException | UnsupportedAudioFileException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.out.println("Build failed: " + e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Usage: HrirStoreBuilder <dir|spherical:rate> <output.hrir> [options]");
+		System.out.println("  --block-size n        frames per block the spectra are partitioned for (default " + (StreamAudio.BUFFER_SIZE / 2) + ")");
+	}
+}
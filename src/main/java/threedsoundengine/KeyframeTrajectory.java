@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+
+//Linear interpolation between keyframes read from a text file with one "time,x,y,z" or "time,x,y,z,gain" line per
+//keyframe (time in seconds). TrajectoryFileBuilder turns these files into the binary, spline interpolated TrajectoryFile
+public class KeyframeTrajectory implements Trajectory {
+
+	private double[] times;
+	private Vector3D[] positions;
+	//Null when the file has no gain column
+	private double[] gains;
+	private int index = 0;
+
+	public KeyframeTrajectory(double[] timesIn, Vector3D[] positionsIn) {
+		if (timesIn.length == 0 || timesIn.length != positionsIn.length) {
+			throw new IllegalArgumentException("Trajectory needs at least one keyframe and one position per time");
+		}
+		times = timesIn;
+		positions = positionsIn;
+	}
+	
+	public KeyframeTrajectory(double[] timesIn, Vector3D[] positionsIn, double[] gainsIn) {
+		this(timesIn, positionsIn);
+		if (gainsIn != null && gainsIn.length != timesIn.length) throw new IllegalArgumentException("Trajectory needs one gain per time");
+		gains = gainsIn;
+	}
+	
+	public static KeyframeTrajectory load(File file) throws IOException {
+		
+		List<double[]> rows = new ArrayList<>();
+		boolean bGain = true;
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				String[] fields = line.split("[,\\s]+");
+				if (fields.length < 4) throw new IOException("Expected time,x,y,z but found: " + line);
+				//Gains are only used if every keyframe has one
+				bGain &= fields.length >= 5;
+				rows.add(new double[] {Double.parseDouble(fields[0]), Double.parseDouble(fields[1]), Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+						fields.length >= 5 ? Double.parseDouble(fields[4]) : 1.0});
+			}
+		}
+		rows.sort((a, b) -> Double.compare(a[0], b[0]));
+		
+		double[] times = new double[rows.size()];
+		Vector3D[] positions = new Vector3D[rows.size()];
+		double[] gains = bGain && !rows.isEmpty() ? new double[rows.size()] : null;
+		for (int k = 0; k < rows.size(); k++) {
+			double[] row = rows.get(k);
+			times[k] = row[0];
+			positions[k] = Vector3D.of(row[1], row[2], row[3]);
+			if (gains != null) gains[k] = row[4];
+		}
+		return new KeyframeTrajectory(times, positions, gains);
+	}
+	
+	//Writes the keyframes as a binary TrajectoryFile
+	public void save(File file) throws IOException {
+		TrajectoryFile.write(file, times, positions, gains);
+	}
+	
+	@Override
+	public Vector3D position(double timeSeconds) {
+		
+		if (timeSeconds <= times[0]) return positions[0];
+		if (timeSeconds >= times[times.length - 1]) return positions[positions.length - 1];
+		
+		//Render time normally only moves forwards, so carry on from the last segment
+		if (timeSeconds < times[index]) index = 0;
+		while (times[index + 1] < timeSeconds) index++;
+		
+		double t = (timeSeconds - times[index]) / (times[index + 1] - times[index]);
+		return positions[index].lerp(positions[index + 1], t);
+	}
+	
+	@Override
+	public boolean hasGain() {
+		return gains != null;
+	}
+	
+	@Override
+	public double gain(double timeSeconds) {
+		
+		if (gains == null) return 1.0;
+		if (timeSeconds <= times[0]) return gains[0];
+		if (timeSeconds >= times[times.length - 1]) return gains[gains.length - 1];
+		
+		if (timeSeconds < times[index]) index = 0;
+		while (times[index + 1] < timeSeconds) index++;
+		
+		double t = (timeSeconds - times[index]) / (times[index + 1] - times[index]);
+		return gains[index] + (t * (gains[index + 1] - gains[index]));
+	}
+}
@@ -30,6 +30,9 @@ import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -38,7 +41,6 @@ import org.apache.commons.geometry.euclidean.oned.Vector1D;
 import org.apache.commons.geometry.euclidean.threed.AffineTransformMatrix3D;
 import org.apache.commons.geometry.euclidean.threed.Plane;
 import org.apache.commons.geometry.euclidean.threed.Planes;
-import org.apache.commons.geometry.euclidean.threed.SphericalCoordinates;
 import org.apache.commons.geometry.euclidean.threed.Triangle3D;
 import org.apache.commons.geometry.euclidean.threed.Vector3D;
 import org.apache.commons.geometry.euclidean.threed.mesh.TriangleMesh;
@@ -49,17 +51,69 @@ import org.apache.commons.numbers.core.Precision;
 
 public class Main {
 
-	class ThreadData {
+	//Static so an engine can be driven without the GUI, as the tests do
+	static class ThreadData {
 		public Sphere soundSourceSphere;
 		public volatile Vector3D soundSourcePos, listenerPos;
 		public String fileName = "";
-		public boolean bLoop = false;
-		public boolean bAudioStop = false;		
-		public boolean bExit = false;		
+		public volatile boolean bLoop = false;
+		public volatile boolean bAudioStop = false;		
+		public volatile boolean bExit = false;		
 		public double listenerBoxSize;
-		public double vGain;
-		public double incrementAzimuth, incrementPolar;
-		public double panDivision,upperLimitFrequency, lowerLimitFrequency;
+		public boolean bDither = false;
+		//Process interleaved float blocks (FloatThreeDEngine) instead of planar double ones
+		public boolean bSinglePrecision = false;
+		//When set, sources are convolved with these HRIRs (HrirRenderer) instead of the ThreeDEngine model
+		public HrirFilters hrirFilters;
+		//When set, output has a channel per speaker and sources are panned over them (VbapRenderer)
+		public SpeakerLayout speakerLayout;
+		//Rate the engine runs at: inputs are converted to it and the result back to the output rate. 0 runs at the input's rate
+		public int engineSampleRate = 0;
+		public PolyphaseResampler.Quality resampleQuality = PolyphaseResampler.Quality.MEDIUM;
+		//Blocks the AudioPipeline may hold between decode and render, and between render and output
+		public int decodeQueueBlocks = 8;
+		public int outputQueueBlocks = 4;
+		//When set, the render loop moves the source along it on the sample clock and the GUI timer only repaints
+		public volatile Trajectory trajectory;
+		//Sources a SceneMixer renders at once, the rest being virtual. 0 renders them all
+		public int maxVoices = 0;
+		//Sources send into a shared ReverbBus
+		public volatile boolean bReverb = false;
+		public volatile double incrementAzimuth, incrementPolar;
+		//Engine settings are swapped as a whole, never edited in place
+		private final AtomicReference<EngineParameters> parameters = new AtomicReference<>(EngineParameters.DEFAULTS);
+		//Channel count and rate of each engine reading the parameters
+		private final List<int[]> directionFormats = new CopyOnWriteArrayList<>();
+		
+		public EngineParameters getParameters() {
+			return parameters.get();
+		}
+		
+		public void setParameters(EngineParameters parametersIn) {
+			parameters.set(withDirectionTables(parametersIn));
+		}
+		
+		//Applies a change to the latest snapshot, retrying if another thread published in between
+		public void updateParameters(UnaryOperator<EngineParameters> update) {
+			parameters.updateAndGet(p -> withDirectionTables(update.apply(p)));
+		}
+		
+		//Called when an engine reading these parameters is built. Its direction table is then built on the publishing
+		//thread with every snapshot, never on the audio thread
+		public synchronized void addDirectionFormat(int channels, int sampleRate) {
+			for (int[] format : directionFormats) {
+				if (format[0] == channels && format[1] == sampleRate) return;
+			}
+			directionFormats.add(new int[] {channels, sampleRate});
+			updateParameters(p -> p);
+		}
+		
+		private EngineParameters withDirectionTables(EngineParameters p) {
+			for (int[] format : directionFormats) {
+				p = p.withDirectionTable(format[0], format[1]);
+			}
+			return p;
+		}
 	}
 
 	private JFrame frame;
@@ -78,7 +132,7 @@ public class Main {
 	private AffineTransformMatrix3D scale, maty, matx;
 	private BufferedImage bimg;
 	private double[] zBuffer;
-	private boolean bSwap = false;
+	private OrbitTrajectory orbit = new OrbitTrajectory(Vector3D.ZERO, 0.0, 0.0);
 	
 	public static void main(String[] args) {
 		EventQueue.invokeLater(new Runnable() {
@@ -102,7 +156,10 @@ public class Main {
 		tData = new ThreadData();
 		
 		//Set up defaults
-		setDefaults();
+		setDefaults(tData);
+		//-Dthreedsoundengine.speakers=5.1 (or 7.1.4, or a layout file) plays over loudspeakers instead of in stereo
+		String speakers = System.getProperty("threedsoundengine.speakers");
+		if (speakers != null) tData.speakerLayout = SpeakerLayout.forName(speakers);
 			
         frame = new JFrame();
         Container pane = frame.getContentPane();
@@ -321,49 +378,23 @@ public class Main {
 		return point2D;
 	}
 		
-	private void setDefaults() {
-		tData.soundSourcePos = Vector3D.of(3.0, 1.0, 3.0);
-		tData.listenerPos = Vector3D.of(2.5, 1.5, 2.5);
-        tData.listenerBoxSize = 0.3;
-        tData.vGain = 0.0;
-        tData.incrementAzimuth = 0.01;
-        tData.incrementPolar = 0.004;
-        tData.panDivision = 4.0;
-        tData.upperLimitFrequency = 40000.0;
-        tData.lowerLimitFrequency = 300.0;
+	static void setDefaults(ThreadData data) {
+		data.soundSourcePos = Vector3D.of(3.0, 1.0, 3.0);
+		data.listenerPos = Vector3D.of(2.5, 1.5, 2.5);
+        data.listenerBoxSize = 0.3;
+        //Run at the input's rate unless a fixed engine rate is asked for
+        data.engineSampleRate = 0;
+        data.incrementAzimuth = 0.01;
+        data.incrementPolar = 0.004;
+        data.setParameters(EngineParameters.DEFAULTS);
         
 	}
 	
 	private void updatePosition() {
 		
-		//Convert to spherical coordinates whilst swapping the y and z axes
-		SphericalCoordinates spherical = SphericalCoordinates.fromCartesian(Vector3D.of(tData.soundSourcePos.getX(), tData.soundSourcePos.getZ(), tData.soundSourcePos.getY()));
-		
-		//Update Azimuth angle
-		double newPosAzimuth = spherical.getAzimuth() + tData.incrementAzimuth * Math.PI;
-		//Limit angle
-		newPosAzimuth %= 2.0 * Math.PI;
-		
-		//Update polar angle
-		double newPosPolar = spherical.getPolar();
-		if (newPosPolar >= 1*Math.PI - tData.incrementPolar * Math.PI) {
-			bSwap = false;
-		}
-		if (newPosPolar <= 0*Math.PI + tData.incrementPolar * Math.PI) {
-			bSwap = true;
-		}
-		if (bSwap) {
-			newPosPolar += tData.incrementPolar * Math.PI;
-		}
-		else {
-			newPosPolar -= tData.incrementPolar * Math.PI;
-		}
-		
-		//Update position and convert back to Cartesian coordinates
-		tData.soundSourcePos = SphericalCoordinates.toCartesian(spherical.getRadius(), newPosAzimuth, newPosPolar);
-		
-		//Swap the y and z coordinates back
-		tData.soundSourcePos = Vector3D.of(tData.soundSourcePos.getX(), tData.soundSourcePos.getZ(), tData.soundSourcePos.getY());
-		
+		//A trajectory is followed by the render loop instead
+		if (tData.trajectory != null) return;
+		//The source circles the listener
+		tData.soundSourcePos = orbit.step(tData.soundSourcePos, tData.incrementAzimuth, tData.incrementPolar, tData.listenerPos);
 	}
 }
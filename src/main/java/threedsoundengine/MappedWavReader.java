@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+//Memory-maps a WAV file, parses the header once and decodes blocks straight from the mapped pages.
+//The data is mapped in frame-aligned segments of up to 1 GiB, so files larger than the heap (or 2 GiB) are fine.
+//Loop points wrap inside a single read, so a looped block has no gap and nothing is copied
+public class MappedWavReader implements SampleSource {
+
+	private static final long MAX_SEGMENT_BYTES = 1L << 30;
+	private static final int FORMAT_PCM = 1;
+	private static final int FORMAT_FLOAT = 3;
+	private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+	private AudioFormat format;
+	private PcmCodec codec;
+	private int frameSize;
+	private long frameLength;
+	private long segmentFrames;
+	private MappedByteBuffer[] segments;
+	private long position = 0;
+	private long loopStart = 0, loopEnd;
+	private boolean bLoop = false;
+	private int runSegment, runIndex;
+
+	public MappedWavReader(File file) throws UnsupportedAudioFileException, IOException {
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+
+			long fileSize = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(header, 0);
+			if (fileSize < 12 || header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) { //"RIFF", "WAVE"
+				throw new UnsupportedAudioFileException("Not a RIFF/WAVE file: " + file);
+			}
+
+			//Walk the chunks for "fmt " and "data"
+			long chunkPos = 12;
+			long dataStart = -1, dataSize = 0;
+			ByteBuffer chunk = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+			while (chunkPos + 8 <= fileSize) {
+				chunk.clear().limit(8);
+				channel.read(chunk, chunkPos);
+				int id = chunk.getInt(0);
+				long size = chunk.getInt(4) & 0xffffffffL;
+				if (id == 0x20746d66) { //"fmt "
+					chunk.clear().limit((int)Math.min(size, 40));
+					channel.read(chunk, chunkPos + 8);
+					format = parseFormat(chunk, (int)size);
+				}
+				else if (id == 0x61746164) { //"data"
+					dataStart = chunkPos + 8;
+					//Streaming writers may leave the size unset, so trust the file length over the header
+					dataSize = Math.min(size, fileSize - dataStart);
+					if (format != null) break;
+				}
+				chunkPos += 8 + size + (size & 1);
+			}
+			if (format == null || dataStart < 0) {
+				throw new UnsupportedAudioFileException("WAV file has no fmt or data chunk: " + file);
+			}
+
+			codec = new PcmCodec(format);
+			frameSize = codec.getFrameSize();
+			frameLength = dataSize / frameSize;
+			loopEnd = frameLength;
+
+			segmentFrames = MAX_SEGMENT_BYTES / frameSize;
+			int segmentCount = (int)Math.max(1, (frameLength + segmentFrames - 1) / segmentFrames);
+			segments = new MappedByteBuffer[segmentCount];
+			for (int k = 0; k < segmentCount; k++) {
+				long start = k * segmentFrames * frameSize;
+				long length = Math.min(segmentFrames * frameSize, frameLength * frameSize - start);
+				segments[k] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + start, length);
+			}
+		}
+	}
+
+	//Cheap check of the RIFF/WAVE magic, without parsing
+	static boolean isWav(File file) {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			if (raf.length() < 12) return false;
+			int riff = raf.readInt();
+			raf.readInt();
+			int wave = raf.readInt();
+			return riff == 0x52494646 && wave == 0x57415645;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static AudioFormat parseFormat(ByteBuffer fmt, int size) throws UnsupportedAudioFileException {
+		if (size < 16) throw new UnsupportedAudioFileException("fmt chunk too short");
+		int tag = fmt.getShort(0) & 0xffff;
+		int channels = fmt.getShort(2) & 0xffff;
+		int sampleRate = fmt.getInt(4);
+		int blockAlign = fmt.getShort(12) & 0xffff;
+		int bits = fmt.getShort(14) & 0xffff;
+		if (tag == FORMAT_EXTENSIBLE && size >= 40) {
+			//The first two bytes of the sub-format GUID hold the real format tag
+			tag = fmt.getShort(24) & 0xffff;
+		}
+
+		AudioFormat.Encoding encoding;
+		if (tag == FORMAT_FLOAT && bits == 32) encoding = AudioFormat.Encoding.PCM_FLOAT;
+		else if (tag == FORMAT_PCM && bits == 8) encoding = AudioFormat.Encoding.PCM_UNSIGNED;
+		else if (tag == FORMAT_PCM && bits <= 32) encoding = AudioFormat.Encoding.PCM_SIGNED;
+		else throw new UnsupportedAudioFileException("Unsupported WAV format tag " + tag + " with " + bits + " bits");
+		if (blockAlign != ((bits + 7) / 8) * channels) {
+			throw new UnsupportedAudioFileException("Unsupported WAV block alignment " + blockAlign);
+		}
+
+		return new AudioFormat(encoding, sampleRate, bits, channels, blockAlign, sampleRate, false);
+	}
+
+	@Override
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	@Override
+	public long getFrameLength() {
+		return frameLength;
+	}
+
+	@Override
+	public void setLooping(boolean bLoopIn) {
+		bLoop = bLoopIn;
+	}
+
+	//Loop region in frames, end exclusive. Defaults to the whole file
+	public void setLoopPoints(long start, long end) {
+		if (start < 0 || end > frameLength || start >= end) {
+			throw new IllegalArgumentException("Invalid loop points " + start + ".." + end + " for " + frameLength + " frames");
+		}
+		loopStart = start;
+		loopEnd = end;
+	}
+
+	public long getPosition() {
+		return position;
+	}
+
+	public void seek(long frame) {
+		position = Math.max(0, Math.min(frame, frameLength));
+	}
+
+	@Override
+	public int read(double[][] dst, int dstOffset, int frames) {
+		int done = 0;
+		int n;
+		while ((n = nextRun(frames - done)) > 0) {
+			codec.decode(segments[runSegment], runIndex, dst, dstOffset + done, n);
+			position += n;
+			done += n;
+		}
+		return done;
+	}
+
+	@Override
+	public int read(float[] dst, int dstOffset, int frames) {
+		int done = 0;
+		int n;
+		while ((n = nextRun(frames - done)) > 0) {
+			codec.decode(segments[runSegment], runIndex, dst, dstOffset + done, n);
+			position += n;
+			done += n;
+		}
+		return done;
+	}
+
+	@Override
+	public int skip(int frames) {
+		int done = 0;
+		int n;
+		while ((n = nextRun(frames - done)) > 0) {
+			position += n;
+			done += n;
+		}
+		return done;
+	}
+
+	//Frames that can be decoded in one go from the current position, wrapping to the loop start first if needed.
+	//A run never crosses the loop end or a segment boundary; 0 means the end of the input (or nothing was asked for)
+	private int nextRun(int remaining) {
+		if (remaining <= 0) return 0;
+		long end = bLoop ? loopEnd : frameLength;
+		if (position >= end) {
+			if (!bLoop) return 0;
+			position = loopStart;
+		}
+		runSegment = (int)(position / segmentFrames);
+		long segmentEnd = Math.min(end, (runSegment + 1) * segmentFrames);
+		runIndex = (int)((position - (runSegment * segmentFrames)) * frameSize);
+		return (int)Math.min(remaining, segmentEnd - position);
+	}
+
+	//The mappings are released by the garbage collector; there is nothing to close explicitly
+	@Override
+	public void close() {
+		segments = new MappedByteBuffer[0];
+	}
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+
+//Renders an input file straight to an output WAV file as fast as the CPU allows, with no audio device or GUI.
+//Uses the same block size, codec and gain control as StreamAudio, so the output matches a real time run
+public class OfflineRender {
+
+	private Main.ThreadData data;
+	private Trajectory trajectory;
+	private long framesRendered;
+	private long renderNanos;
+	private String pipelineSummary;
+	private int sampleRate;
+
+	public OfflineRender(Main.ThreadData tDataIn, Trajectory trajectoryIn) {
+		data = tDataIn;
+		trajectory = trajectoryIn;
+	}
+
+	public static void main(String[] args) {
+
+		if (args.length < 2) {
+			printUsage();
+			System.exit(1);
+		}
+
+		try {
+			Main.ThreadData tData = new Main.ThreadData();
+			Main.setDefaults(tData);
+			File trajectoryFile = null;
+			String hrirName = null;
+			List<String> extraSources = new ArrayList<>();
+
+			for (int i = 2; i < args.length; i++) {
+				switch (args[i]) {
+				case "--position":
+					tData.soundSourcePos = parseVector(args[++i]);
+					break;
+				case "--azimuth-rate":
+					tData.incrementAzimuth = Double.parseDouble(args[++i]);
+					break;
+				case "--polar-rate":
+					tData.incrementPolar = Double.parseDouble(args[++i]);
+					break;
+				case "--trajectory":
+					trajectoryFile = new File(args[++i]);
+					break;
+				case "--vgain":
+					double vGain = Double.parseDouble(args[++i]);
+					tData.updateParameters(p -> p.withVGain(vGain));
+					break;
+				case "--pan-division":
+					double panDivision = Double.parseDouble(args[++i]);
+					tData.updateParameters(p -> p.withPanDivision(panDivision));
+					break;
+				case "--upper-cutoff":
+					double upperLimitFrequency = Double.parseDouble(args[++i]);
+					tData.updateParameters(p -> p.withUpperLimitFrequency(upperLimitFrequency));
+					break;
+				case "--lower-cutoff":
+					double lowerLimitFrequency = Double.parseDouble(args[++i]);
+					tData.updateParameters(p -> p.withLowerLimitFrequency(lowerLimitFrequency));
+					break;
+				case "--reference-distance":
+					double referenceDistance = Double.parseDouble(args[++i]);
+					tData.updateParameters(p -> p.withReferenceDistance(referenceDistance));
+					break;
+				case "--source":
+					extraSources.add(args[++i]);
+					break;
+				case "--dither":
+					tData.bDither = true;
+					break;
+				case "--hrir":
+					hrirName = args[++i];
+					break;
+				case "--reverb":
+					tData.bReverb = true;
+					break;
+				case "--speakers":
+					tData.speakerLayout = SpeakerLayout.forName(args[++i]);
+					System.out.println("Speaker layout " + tData.speakerLayout);
+					break;
+				case "--engine-rate":
+					tData.engineSampleRate = Integer.parseInt(args[++i]);
+					break;
+				case "--resample-quality":
+					tData.resampleQuality = PolyphaseResampler.Quality.valueOf(args[++i].toUpperCase());
+					break;
+				case "--single-precision":
+					tData.bSinglePrecision = true;
+					break;
+				case "--max-voices":
+					tData.maxVoices = Integer.parseInt(args[++i]);
+					break;
+				case "--decode-queue":
+					tData.decodeQueueBlocks = Integer.parseInt(args[++i]);
+					break;
+				case "--output-queue":
+					tData.outputQueueBlocks = Integer.parseInt(args[++i]);
+					break;
+				default:
+					System.out.println("Unknown option: " + args[i]);
+					printUsage();
+					System.exit(1);
+				}
+			}
+
+			Trajectory trajectory;
+			if (trajectoryFile != null) trajectory = TrajectoryFile.load(trajectoryFile);
+			else trajectory = new OrbitTrajectory(tData.soundSourcePos, tData.incrementAzimuth, tData.incrementPolar, tData.listenerPos);
+
+			if (hrirName != null) {
+				if (hrirName.equals("spherical")) {
+					//The model is built at the engine's sample rate
+					int rate = tData.engineSampleRate;
+					if (rate == 0) {
+						try (SampleSource probe = SampleSource.open(new File(args[0]))) {
+							rate = (int)probe.getFormat().getSampleRate();
+						}
+					}
+					tData.hrirFilters = HrirSet.sphericalHead(rate);
+				}
+				//Preprocessed stores (HrirStoreBuilder) are mapped rather than decoded
+				else if (hrirName.endsWith(".hrir")) tData.hrirFilters = HrirStore.open(new File(hrirName));
+				else tData.hrirFilters = HrirSet.load(new File(hrirName));
+				//Measured sets have a fixed rate, so the engine runs at it
+				if (tData.hrirFilters.getSampleRate() != tData.engineSampleRate) {
+					tData.engineSampleRate = tData.hrirFilters.getSampleRate();
+					System.out.println("Engine rate set to the HRIR rate of " + tData.engineSampleRate + " Hz");
+				}
+			}
+
+			OfflineRender render = new OfflineRender(tData, trajectory);
+			if (extraSources.isEmpty()) {
+				render.render(new File(args[0]), new File(args[1]));
+			}
+			else {
+				render.renderScene(new File(args[0]), extraSources, new File(args[1]));
+			}
+			System.out.println(render.getSummary());
+		}
+		catch (IOException | UnsupportedAudioFileException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.out.println("Render failed: " + e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Usage: OfflineRender <input.wav> <output.wav> [options]");
+		System.out.println("  --position x,y,z      start position of the source");
+		System.out.println("  --azimuth-rate r      azimuth increment per 10ms, in multiples of pi");
+		System.out.println("  --polar-rate r        polar increment per 10ms, in multiples of pi");
+		System.out.println("  --trajectory file     binary trajectory file, or text keyframe file of time,x,y,z[,gain] lines (replaces the orbit)");
+		System.out.println("  --vgain g             vertical gain");
+		System.out.println("  --pan-division n      front-back filter pan divisions");
+		System.out.println("  --upper-cutoff hz     front-back filter upper cut-off frequency");
+		System.out.println("  --lower-cutoff hz     front-back filter lower cut-off frequency");
+		System.out.println("  --reference-distance  metres from the listener inside which sources are not attenuated");
+		System.out.println("  --source file@x,y,z   add another source at a fixed position (mixed with SceneMixer)");
+		System.out.println("  --dither              add TPDF dither to the output");
+		System.out.println("  --hrir dir|spherical  convolve with H<elev>e<azim>a.wav HRIRs from dir, or a spherical head model");
+		System.out.println("  --hrir file.hrir      convolve with a preprocessed store written by HrirStoreBuilder");
+		System.out.println("  --reverb              send every source into the shared reverb bus (not with --hrir or --single-precision)");
+		System.out.println("  --engine-rate hz      rate to process at, converting from and back to the file's rate (default 0, the file's rate)");
+		System.out.println("  --resample-quality q  fast, medium or best rate conversion");
+		System.out.println("  --single-precision    process interleaved float blocks instead of double (single source only)");
+		System.out.println("  --max-voices n        render only the n loudest sources, the rest virtual");
+		System.out.println("  --decode-queue n      decoded blocks buffered ahead of the renderer");
+		System.out.println("  --output-queue n      rendered blocks buffered ahead of the output");
+		System.out.println("  --speakers layout     pan over stereo, quad, 5.1, 7.1, 7.1.4 or a layout file with VBAP");
+	}
+
+	static Vector3D parseVector(String value) {
+		String[] fields = value.split(",");
+		if (fields.length != 3) throw new IllegalArgumentException("Expected x,y,z but found: " + value);
+		return Vector3D.of(Double.parseDouble(fields[0]), Double.parseDouble(fields[1]), Double.parseDouble(fields[2]));
+	}
+
+	public void render(File inFile, File outFile) throws UnsupportedAudioFileException, IOException {
+
+		try (SampleSource fileSource = SampleSource.open(inFile)) {
+
+			AudioFormat inFormat = fileSource.getFormat();
+			int channels = outputChannels(); //Stereo, even with a mono signal, or a channel per speaker
+			AudioFormat format = new AudioFormat(inFormat.getEncoding(), inFormat.getSampleRate(), inFormat.getSampleSizeInBits(), channels, (inFormat.getFrameSize() / inFormat.getChannels()) * channels, inFormat.getFrameRate(), false);
+			sampleRate = (int)format.getSampleRate();
+			//The output keeps the file's rate; the engine may run at another one
+			int engineRate = data.engineSampleRate != 0 ? data.engineSampleRate : sampleRate;
+			SampleSource source = ResamplingSampleSource.atRate(fileSource, engineRate, data.resampleQuality);
+
+			PcmCodec outCodec = new PcmCodec(format);
+			outCodec.setDither(data.bDither);
+
+			int frameSize = outCodec.getFrameSize();
+			int frames = StreamAudio.BUFFER_SIZE / inFormat.getFrameSize();
+
+			ProcessAudio processAudio = new ProcessAudio(data, channels, engineRate, frameSize, frames);
+			processAudio.setOutputRate(sampleRate);
+			processAudio.setTrajectory(trajectory);
+			int blockBytes = processAudio.getMaxOutputFrames() * frameSize;
+
+			try (AsyncWavWriter out = new AsyncWavWriter(outFile, format, channelMask(), blockBytes, 64, 30.0)) {
+				//No line, so the file is the clock and nothing is dropped
+				AudioPipeline pipeline = new AudioPipeline(data, source, processAudio, outCodec, null, out, null, data.decodeQueueBlocks, data.outputQueueBlocks);
+				long startTime = System.nanoTime();
+				pipeline.run();
+				framesRendered = pipeline.getFramesWritten();
+				pipelineSummary = pipeline.getSummary();
+				renderNanos = System.nanoTime() - startTime;
+			}
+		}
+	}
+
+	//Renders the input (following the trajectory) plus the extra "file@x,y,z" sources through a SceneMixer
+	public void renderScene(File inFile, List<String> extraSources, File outFile) throws UnsupportedAudioFileException, IOException {
+
+		if (data.bReverb && data.hrirFilters != null) throw new IllegalArgumentException("Reverb is not available with HRIRs");
+
+		AudioFormat inFormat;
+		try (SampleSource probe = SampleSource.open(inFile)) {
+			inFormat = probe.getFormat();
+		}
+		int channels = outputChannels();
+		AudioFormat format = new AudioFormat(inFormat.getEncoding(), inFormat.getSampleRate(), inFormat.getSampleSizeInBits(), channels, (inFormat.getFrameSize() / inFormat.getChannels()) * channels, inFormat.getFrameRate(), false);
+		sampleRate = (int)format.getSampleRate();
+		int frames = StreamAudio.BUFFER_SIZE / inFormat.getFrameSize();
+		//Every source is converted to the engine rate, so files of different rates can be mixed
+		int engineRate = data.engineSampleRate != 0 ? data.engineSampleRate : sampleRate;
+		PolyphaseResampler outResampler = engineRate != sampleRate ? new PolyphaseResampler(channels, engineRate, sampleRate, data.resampleQuality) : null;
+		double[][] resampled = outResampler != null ? new double[channels][outResampler.maxFlushedOutputFrames(frames)] : null;
+
+		PcmCodec outCodec = new PcmCodec(format);
+		outCodec.setDither(data.bDither);
+		int frameSize = outCodec.getFrameSize();
+		byte[] bufOut = new byte[(outResampler != null ? resampled[0].length : frames) * frameSize];
+		double[][] bus = new double[channels][frames];
+		long cpuNanos = 0;
+		long blocks = 0;
+
+		try (SceneMixer mixer = new SceneMixer(channels, engineRate, frames, data.speakerLayout != null ? data.speakerLayout.getPannedChannels() : null);
+			 AsyncWavWriter out = new AsyncWavWriter(outFile, format, channelMask(), bufOut.length, 64, 30.0)) {
+
+			mixer.getScene().setListener(data.listenerPos);
+			if (data.maxVoices > 0) mixer.setVoiceManager(new VoiceManager(data.maxVoices));
+			SceneSource primary = new SceneSource(data, inFile, data.soundSourcePos, channels, engineRate, frames);
+			primary.setTrajectory(trajectory);
+			mixer.addSource(primary);
+			for (String spec : extraSources) {
+				int at = spec.lastIndexOf('@');
+				if (at < 0) throw new IllegalArgumentException("Expected file@x,y,z but found: " + spec);
+				mixer.addSource(new SceneSource(data, new File(spec.substring(0, at)), parseVector(spec.substring(at + 1)), channels, engineRate, frames));
+			}
+
+			framesRendered = 0;
+			long startTime = System.nanoTime();
+			//The output is as long as the primary input, so the padding of its last block is dropped and the converter's
+			//look-ahead is flushed out once it has finished. That can be on an empty block, which still mixes the others
+			boolean bLast = false;
+			while (!bLast) {
+				mixer.mix(bus);
+				StreamAudio.automaticGainControl(bus, outCodec.getFullScale());
+				bLast = primary.isFinished();
+				long length = primary.getFramesRead();
+				int framesOut = frames;
+				if (outResampler != null) {
+					framesOut = outResampler.process(bus, 0, frames, resampled, 0, resampled[0].length);
+					if (bLast) framesOut += outResampler.flush(resampled, framesOut, resampled[0].length - framesOut);
+					length = outResampler.outputFramesFor(length);
+				}
+				framesOut = (int)Math.max(0, Math.min(framesOut, length - framesRendered));
+				outCodec.encode(outResampler != null ? resampled : bus, 0, bufOut, 0, framesOut);
+				out.writeBlocking(bufOut, 0, framesOut * frameSize);
+				framesRendered += framesOut;
+				cpuNanos += mixer.getLastBlockCpuNanos();
+				blocks++;
+			}
+			renderNanos = System.nanoTime() - startTime;
+
+			System.out.println(String.format("%d sources, %.1f us CPU per block", mixer.getSources().length, blocks == 0 ? 0.0 : cpuNanos / 1e3 / blocks));
+			if (mixer.getVoiceManager() != null) System.out.println(mixer.getVoiceManager().getSummary());
+		}
+	}
+
+	private int outputChannels() {
+		return data.speakerLayout != null ? data.speakerLayout.getChannels() : 2;
+	}
+
+	private int channelMask() {
+		return data.speakerLayout != null ? data.speakerLayout.getChannelMask() : 0;
+	}
+
+	public long getFramesRendered() {
+		return framesRendered;
+	}
+
+	//Seconds of audio produced per second of wall clock time
+	public double getRealTimeFactor() {
+		if (renderNanos == 0) return 0.0;
+		return ((double)framesRendered / sampleRate) / (renderNanos / 1e9);
+	}
+
+	public String getSummary() {
+		double audioSeconds = (double)framesRendered / sampleRate;
+		String summary = String.format("Rendered %.2f s of audio in %.3f s (%.1fx real time)", audioSeconds, renderNanos / 1e9, getRealTimeFactor());
+		return pipelineSummary == null ? summary : summary + System.lineSeparator() + pipelineSummary;
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import org.apache.commons.geometry.euclidean.threed.SphericalCoordinates;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+
+//The test source movement from the GUI: the azimuth turns and the polar angle sweeps up and down once every 10ms tick,
+//about a centre that is normally the listener
+public class OrbitTrajectory implements Trajectory {
+
+	public static final double TICK_SECONDS = 0.01;
+	
+	private Vector3D position;
+	private Vector3D centre;
+	private double incrementAzimuth, incrementPolar;
+	private boolean bSwap = false;
+	private long ticks = 0;
+
+	public OrbitTrajectory(Vector3D startPosition, double incrementAzimuthIn, double incrementPolarIn) {
+		this(startPosition, incrementAzimuthIn, incrementPolarIn, Vector3D.ZERO);
+	}
+	
+	public OrbitTrajectory(Vector3D startPosition, double incrementAzimuthIn, double incrementPolarIn, Vector3D centreIn) {
+		position = startPosition;
+		centre = centreIn;
+		incrementAzimuth = incrementAzimuthIn;
+		incrementPolar = incrementPolarIn;
+	}
+	
+	@Override
+	public Vector3D position(double timeSeconds) {
+		//Only moves forwards, one tick at a time, so the path matches the timer driven GUI
+		long targetTicks = (long)(timeSeconds / TICK_SECONDS);
+		while (ticks < targetTicks) {
+			position = step(position, incrementAzimuth, incrementPolar);
+			ticks++;
+		}
+		return position;
+	}
+	
+	public Vector3D step(Vector3D pos, double incrementAzimuthIn, double incrementPolarIn) {
+		return step(pos, incrementAzimuthIn, incrementPolarIn, centre);
+	}
+	
+	public Vector3D step(Vector3D pos, double incrementAzimuthIn, double incrementPolarIn, Vector3D centreIn) {
+		
+		//Convert to spherical coordinates about the centre whilst swapping the y and z axes
+		Vector3D offset = pos.subtract(centreIn);
+		SphericalCoordinates spherical = SphericalCoordinates.fromCartesian(Vector3D.of(offset.getX(), offset.getZ(), offset.getY()));
+		
+		//Update Azimuth angle
+		double newPosAzimuth = spherical.getAzimuth() + incrementAzimuthIn * Math.PI;
+		//Limit angle
+		newPosAzimuth %= 2.0 * Math.PI;
+		
+		//Update polar angle
+		double newPosPolar = spherical.getPolar();
+		if (newPosPolar >= 1*Math.PI - incrementPolarIn * Math.PI) {
+			bSwap = false;
+		}
+		if (newPosPolar <= 0*Math.PI + incrementPolarIn * Math.PI) {
+			bSwap = true;
+		}
+		if (bSwap) {
+			newPosPolar += incrementPolarIn * Math.PI;
+		}
+		else {
+			newPosPolar -= incrementPolarIn * Math.PI;
+		}
+		
+		//Update position and convert back to Cartesian coordinates
+		Vector3D newPos = SphericalCoordinates.toCartesian(spherical.getRadius(), newPosAzimuth, newPosPolar);
+		
+		//Swap the y and z coordinates back
+		return Vector3D.of(newPos.getX(), newPos.getZ(), newPos.getY()).add(centreIn);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//Turns a parameter that is worked out once per block (control rate) into one value per sample (audio rate).
+//LINEAR reaches the new target on the last sample of the block. EXPONENTIAL approaches it with a fixed time
+//constant, carrying on across blocks, so the motion sounds the same whatever the block size
+public class ParameterRamp {
+
+	public enum Shape { LINEAR, EXPONENTIAL }
+	
+	public static final double DEFAULT_TIME_CONSTANT_MS = 5.0;
+
+	private double current;
+	private double coefficient;
+	private Shape shape = Shape.LINEAR;
+
+	public ParameterRamp(int sampleRate, double initialValue) {
+		current = initialValue;
+		setTimeConstant(sampleRate, DEFAULT_TIME_CONSTANT_MS);
+	}
+	
+	public void setShape(Shape shapeIn) {
+		shape = shapeIn;
+	}
+	
+	public void setTimeConstant(int sampleRate, double timeConstantMs) {
+		coefficient = Math.exp(-1000.0 / (timeConstantMs * sampleRate));
+	}
+	
+	//Jump straight to a value, e.g. on the first block where there is nothing to ramp from
+	public void reset(double value) {
+		current = value;
+	}
+	
+	public double getValue() {
+		return current;
+	}
+	
+	//Writes frames values moving from the current value towards target into dst
+	public void fill(double target, double[] dst, int frames) {
+		
+		if (shape == Shape.LINEAR) {
+			double start = current;
+			double step = (target - start) / frames;
+			for (int j = 0; j < frames; j++) {
+				dst[j] = start + (step * (j + 1));
+			}
+			current = target;
+		}
+		else {
+			double value = current;
+			for (int j = 0; j < frames; j++) {
+				value = target + ((value - target) * coefficient);
+				dst[j] = value;
+			}
+			current = value;
+		}
+	}
+	
+	//Single precision version of fill, for the float engine
+	public void fill(double target, float[] dst, int frames) {
+		
+		if (shape == Shape.LINEAR) {
+			double start = current;
+			double step = (target - start) / frames;
+			for (int j = 0; j < frames; j++) {
+				dst[j] = (float)(start + (step * (j + 1)));
+			}
+			current = target;
+		}
+		else {
+			double value = current;
+			for (int j = 0; j < frames; j++) {
+				value = target + ((value - target) * coefficient);
+				dst[j] = (float)value;
+			}
+			current = value;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import javax.sound.sampled.AudioFormat;
+
+//Converts whole blocks between interleaved PCM bytes and planar double buffers in one pass.
+//Integer formats decode to their own integer scale (16-bit gives -32768..32767), float PCM decodes to -1.0..1.0
+public class PcmCodec {
+
+	private int channels;
+	private int bytesPerSample;
+	private int frameSize;
+	private boolean bigEndian;
+	private boolean bFloat;
+	private boolean bUnsigned;
+	private double fullScale;
+	private double minValue, maxValue;
+	private boolean bDither = false;
+	private long ditherSeed = 0x2545F4914F6CDD1DL;
+	private final SampleKernels kernels = SampleKernels.SELECTED;
+	//Quantised samples of one block, grown on first use
+	private int[][] quantised = new int[0][0];
+
+	public PcmCodec(AudioFormat format) {
+
+		channels = format.getChannels();
+		bytesPerSample = (format.getSampleSizeInBits() + 7) / 8;
+		frameSize = bytesPerSample * channels;
+		bigEndian = format.isBigEndian();
+		bFloat = format.getEncoding().equals(AudioFormat.Encoding.PCM_FLOAT);
+		bUnsigned = format.getEncoding().equals(AudioFormat.Encoding.PCM_UNSIGNED);
+
+		if (bFloat && bytesPerSample != 4) {
+			throw new IllegalArgumentException("Only 32-bit float PCM is supported");
+		}
+		if (!bFloat && (bytesPerSample < 1 || bytesPerSample > 4)) {
+			throw new IllegalArgumentException("Unsupported sample size: " + format.getSampleSizeInBits() + " bits");
+		}
+
+		if (bFloat) {
+			fullScale = 1.0;
+			minValue = -1.0;
+			maxValue = 1.0;
+		}
+		else {
+			fullScale = Math.pow(2, (bytesPerSample * 8) - 1);
+			minValue = -fullScale;
+			maxValue = fullScale - 1;
+		}
+	}
+
+	public int getFrameSize() {
+		return frameSize;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	//Magnitude of a full scale sample in the decoded representation
+	public double getFullScale() {
+		return fullScale;
+	}
+
+	//Enable TPDF dither when encoding to integer formats
+	public void setDither(boolean bDitherIn) {
+		bDither = bDitherIn;
+	}
+
+	public void decode(byte[] src, int srcOffset, double[][] dst, int dstOffset, int frames) {
+
+		int index = srcOffset;
+		for (int j = dstOffset; j < dstOffset + frames; j++) { //data
+			for (int i = 0; i < channels; i++) { //channels
+				dst[i][j] = readSample(src, index);
+				index += bytesPerSample;
+			}
+		}
+	}
+
+	//Decodes straight out of a (typically memory-mapped) buffer using absolute reads, so the buffer position is untouched
+	public void decode(ByteBuffer src, int srcIndex, double[][] dst, int dstOffset, int frames) {
+
+		if (src.order() != byteOrder()) src.order(byteOrder());
+		int index = srcIndex;
+		for (int j = dstOffset; j < dstOffset + frames; j++) { //data
+			for (int i = 0; i < channels; i++) { //channels
+				dst[i][j] = readSample(src, index);
+				index += bytesPerSample;
+			}
+		}
+	}
+
+	//Interleaved single precision variants: frame j, channel i is at dst[(dstOffset + j) * channels + i]
+	public void decode(byte[] src, int srcOffset, float[] dst, int dstOffset, int frames) {
+
+		int index = srcOffset;
+		int end = (dstOffset + frames) * channels;
+		for (int k = dstOffset * channels; k < end; k++) { //samples
+			dst[k] = (float)readSample(src, index);
+			index += bytesPerSample;
+		}
+	}
+
+	public void decode(ByteBuffer src, int srcIndex, float[] dst, int dstOffset, int frames) {
+
+		if (src.order() != byteOrder()) src.order(byteOrder());
+		int index = srcIndex;
+		int end = (dstOffset + frames) * channels;
+		for (int k = dstOffset * channels; k < end; k++) { //samples
+			dst[k] = (float)readSample(src, index);
+			index += bytesPerSample;
+		}
+	}
+
+	private double readSample(ByteBuffer src, int index) {
+		switch (bytesPerSample) {
+		case 1:
+			return bUnsigned ? (src.get(index) & 0xff) - 128 : src.get(index);
+		case 2:
+			return bUnsigned ? (src.getShort(index) & 0xffff) - 32768 : src.getShort(index);
+		case 3:
+			return read24(src, index);
+		default:
+			if (bFloat) return src.getFloat(index);
+			if (bUnsigned) return (src.getInt(index) & 0xffffffffL) - fullScale;
+			return src.getInt(index);
+		}
+	}
+
+	private double read24(ByteBuffer src, int index) {
+		int bits;
+		if (bigEndian) bits = (src.get(index) << 16) | ((src.get(index + 1) & 0xff) << 8) | (src.get(index + 2) & 0xff);
+		else bits = (src.get(index + 2) << 16) | ((src.get(index + 1) & 0xff) << 8) | (src.get(index) & 0xff);
+		if (bUnsigned) bits = ((bits ^ 0x800000) << 8) >> 8;
+		return bits;
+	}
+
+	private ByteOrder byteOrder() {
+		return bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+	}
+
+	public void encode(double[][] src, int srcOffset, byte[] dst, int dstOffset, int frames) {
+
+		if (!bFloat && !bDither) {
+			encodeQuantised(src, srcOffset, dst, dstOffset, frames);
+			return;
+		}
+		int index = dstOffset;
+		for (int j = srcOffset; j < srcOffset + frames; j++) { //data
+			for (int i = 0; i < channels; i++) { //channels
+				writeSample(src[i][j], dst, index);
+				index += bytesPerSample;
+			}
+		}
+	}
+
+	public void encode(float[] src, int srcOffset, byte[] dst, int dstOffset, int frames) {
+
+		int index = dstOffset;
+		int end = (srcOffset + frames) * channels;
+		for (int k = srcOffset * channels; k < end; k++) { //samples
+			writeSample(src[k], dst, index);
+			index += bytesPerSample;
+		}
+	}
+
+	//Integer output without dither: round and clamp a whole channel at a time, then pack the bytes
+	private void encodeQuantised(double[][] src, int srcOffset, byte[] dst, int dstOffset, int frames) {
+
+		if (quantised.length < channels || quantised[0].length < frames) quantised = new int[channels][frames];
+		for (int i = 0; i < channels; i++) { //channels
+			kernels.quantise(src[i], srcOffset, quantised[i], frames, minValue, maxValue);
+		}
+		int index = dstOffset;
+		for (int j = 0; j < frames; j++) { //data
+			for (int i = 0; i < channels; i++) { //channels
+				writeBits(quantised[i][j], dst, index);
+				index += bytesPerSample;
+			}
+		}
+	}
+
+	private double readSample(byte[] src, int index) {
+
+		int bits = 0;
+		if (bigEndian) {
+			for (int k = 0; k < bytesPerSample; k++) {
+				bits = (bits << 8) | (src[index + k] & 0xff);
+			}
+		}
+		else {
+			for (int k = bytesPerSample - 1; k >= 0; k--) {
+				bits = (bits << 8) | (src[index + k] & 0xff);
+			}
+		}
+
+		if (bFloat) return Float.intBitsToFloat(bits);
+		//Unsigned samples are offset binary, so flipping the top bit gives two's complement
+		if (bUnsigned) bits ^= 1 << ((bytesPerSample * 8) - 1);
+		//Sign extend from the sample size
+		int shift = 32 - (bytesPerSample * 8);
+		return (bits << shift) >> shift;
+	}
+
+	private void writeSample(double value, byte[] dst, int index) {
+
+		int bits;
+		if (bFloat) {
+			bits = Float.floatToRawIntBits((float)value);
+		}
+		else {
+			if (bDither) value += triangularDither();
+			value = Math.rint(value);
+			if (value > maxValue) value = maxValue;
+			else if (value < minValue) value = minValue;
+			bits = (int)value;
+		}
+		writeBits(bits, dst, index);
+	}
+
+	private void writeBits(int bits, byte[] dst, int index) {
+
+		if (!bFloat && bUnsigned) bits ^= 1 << ((bytesPerSample * 8) - 1);
+		if (bigEndian) {
+			for (int k = bytesPerSample - 1; k >= 0; k--) {
+				dst[index + k] = (byte)bits;
+				bits >>= 8;
+			}
+		}
+		else {
+			for (int k = 0; k < bytesPerSample; k++) {
+				dst[index + k] = (byte)bits;
+				bits >>= 8;
+			}
+		}
+	}
+
+	//Triangular PDF noise of +/-1 LSB from the difference of two uniform values (xorshift generator, no allocation)
+	private double triangularDither() {
+		return nextUniform() - nextUniform();
+	}
+
+	private double nextUniform() {
+		ditherSeed ^= ditherSeed << 13;
+		ditherSeed ^= ditherSeed >>> 7;
+		ditherSeed ^= ditherSeed << 17;
+		return (ditherSeed >>> 11) * 0x1.0p-53;
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Arrays;
+
+//Streaming rational sample-rate converter. The rates are reduced to up = outRate / g and down = inRate / g, and a
+//windowed-sinc low-pass designed at up * inRate is precomputed as up phases of taps coefficients, so each output
+//sample is one dot product of taps input samples with one phase, whatever the ratio. Blocks of any length can be
+//pushed through; input history and the phase carry over between calls, and nothing is allocated after construction
+public class PolyphaseResampler {
+
+	//Taps per phase (for up-sampling), Kaiser window beta and the pass band edge as a fraction of the lower Nyquist frequency
+	public enum Quality {
+		FAST(8, 5.0, 0.80),
+		MEDIUM(32, 8.6, 0.90),
+		BEST(64, 10.0, 0.95);
+
+		final int taps;
+		final double beta;
+		final double passBand;
+
+		Quality(int tapsIn, double betaIn, double passBandIn) {
+			taps = tapsIn;
+			beta = betaIn;
+			passBand = passBandIn;
+		}
+	}
+
+	//Larger reduced ratios would need impractically large tables
+	public static final int MAX_PHASES = 4096;
+
+	private final int channels;
+	private final int inRate, outRate;
+	private final int up, down;
+	private final int taps;
+	//coefficients[phase][k] multiplies the k-th oldest sample of the window
+	private final double[][] coefficients;
+	//Each channel's last taps inputs, stored twice so the window is always contiguous: history[i][w + 1 .. w + taps]
+	private final double[][] history;
+	private int writeIndex = 0;
+	//Position of the next output after the newest input, in 1 / up input samples; up or more means it needs more input
+	private int phase;
+	//Starting there lines output 0 up with input 0, so the filter delay shows only as look-ahead
+	private final int startPhase;
+	private int consumed;
+	//Silence fed in after the last input to run the look-ahead out
+	private final double[][] silence;
+
+	public PolyphaseResampler(int channelsIn, int inRateIn, int outRateIn, Quality quality) {
+
+		if (inRateIn <= 0 || outRateIn <= 0) throw new IllegalArgumentException("Sample rates must be positive");
+		channels = channelsIn;
+		inRate = inRateIn;
+		outRate = outRateIn;
+		int g = gcd(inRate, outRate);
+		up = outRate / g;
+		down = inRate / g;
+		if (up > MAX_PHASES) {
+			throw new IllegalArgumentException("Cannot convert " + inRate + " Hz to " + outRate + " Hz: the ratio needs " + up + " phases");
+		}
+		//Down-sampling narrows the pass band, so the filter is lengthened to keep the same transition width
+		taps = (int)Math.ceil(quality.taps * Math.max(1.0, (double)down / up));
+		coefficients = design(up, down, taps, quality);
+		history = new double[channels][2 * taps];
+		startPhase = ((up * taps) / 2) - 1 + up;
+		phase = startPhase;
+		silence = new double[channels][getLookAhead() + 1];
+	}
+
+	//Windowed sinc at the up-sampled rate, cut off below the lower of the two Nyquist frequencies, split into phases.
+	//One coefficient short of up * taps, so the centre falls on a sample
+	private static double[][] design(int up, int down, int taps, Quality quality) {
+
+		int length = (up * taps) - 1;
+		double cutoff = quality.passBand * 0.5 / Math.max(up, down); //cycles per up-sampled sample
+		double centre = (length - 1) / 2.0;
+		double norm = besselI0(quality.beta);
+		double[][] table = new double[up][taps];
+		for (int n = 0; n < length; n++) {
+			double t = n - centre;
+			double sinc = t == 0.0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * t) / (Math.PI * t);
+			double r = t / (centre + 0.5);
+			double window = besselI0(quality.beta * Math.sqrt(Math.max(0.0, 1.0 - (r * r)))) / norm;
+			//Gain of up makes up for the zeros the up-sampling stuffs in
+			table[n % up][taps - 1 - (n / up)] = up * sinc * window;
+		}
+		return table;
+	}
+
+	private static double besselI0(double x) {
+		double sum = 1.0, term = 1.0;
+		for (int k = 1; k < 50; k++) {
+			term *= (x / (2 * k)) * (x / (2 * k));
+			sum += term;
+			if (term < sum * 1e-17) break;
+		}
+		return sum;
+	}
+
+	private static int gcd(int a, int b) {
+		while (b != 0) {
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	public int getInputRate() {
+		return inRate;
+	}
+
+	public int getOutputRate() {
+		return outRate;
+	}
+
+	//Input frames taken in before the first output, and so the delay of a real time stream through the converter
+	public int getLookAhead() {
+		return startPhase / up;
+	}
+
+	//Most output frames inFrames input frames can produce, for sizing buffers
+	public int maxOutputFrames(int inFrames) {
+		return (int)(((long)inFrames * up) / down) + 2;
+	}
+
+	//Output frames a whole stream of inFrames input frames converts to, which is where the output is trimmed after a flush
+	public long outputFramesFor(long inFrames) {
+		return Math.round((double)inFrames * outRate / inRate);
+	}
+
+	//Input frames process needs to produce outFrames output frames from the current state
+	public int inputFramesFor(int outFrames) {
+		if (outFrames <= 0) return 0;
+		long last = (long)phase + ((long)(outFrames - 1) * down);
+		return (int)(last / up);
+	}
+
+	//Input frames used by the last process call
+	public int getConsumed() {
+		return consumed;
+	}
+
+	//Converts up to inFrames frames of in (from inOffset) into out (from outOffset), stopping when the input runs out
+	//or outFrames frames have been written. Returns the frames written; getConsumed() gives the frames read
+	public int process(double[][] in, int inOffset, int inFrames, double[][] out, int outOffset, int outFrames) {
+
+		int read = 0;
+		int written = 0;
+		int w = writeIndex;
+		while (written < outFrames) {
+			//Take in input until the next output lies within the window
+			while (phase >= up) {
+				if (read == inFrames) {
+					writeIndex = w;
+					consumed = read;
+					return written;
+				}
+				w = w + 1 == taps ? 0 : w + 1;
+				for (int i = 0; i < channels; i++) { //channels
+					double x = in[i][inOffset + read];
+					history[i][w] = x;
+					history[i][w + taps] = x;
+				}
+				read++;
+				phase -= up;
+			}
+			double[] h = coefficients[phase];
+			int start = w + 1;
+			for (int i = 0; i < channels; i++) { //channels
+				double[] window = history[i];
+				double sum = 0.0;
+				for (int k = 0; k < taps; k++) {
+					sum += window[start + k] * h[k];
+				}
+				out[i][outOffset + written] = sum;
+			}
+			written++;
+			phase += down;
+		}
+		writeIndex = w;
+		consumed = read;
+		return written;
+	}
+
+	//After the last input, runs the look-ahead out into out (from outOffset, up to outFrames frames) by feeding in
+	//silence. Returns the frames written, which overshoot the stream's length and are trimmed with outputFramesFor
+	public int flush(double[][] out, int outOffset, int outFrames) {
+		return process(silence, 0, silence[0].length, out, outOffset, outFrames);
+	}
+
+	//Most output frames a block of inFrames input frames and a flush can produce together
+	public int maxFlushedOutputFrames(int inFrames) {
+		return maxOutputFrames(inFrames + silence[0].length);
+	}
+
+	public void reset() {
+		for (double[] channel : history) {
+			Arrays.fill(channel, 0.0);
+		}
+		writeIndex = 0;
+		phase = startPhase;
+	}
+}
@@ -14,13 +14,18 @@
 
 package threedsoundengine;
 
-import org.apache.commons.geometry.euclidean.threed.SphericalCoordinates;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
 
 public class ProcessAudio {
 
-	public ThreeDEngine threeDEngine;
+	//ThreeDEngine, or HrirRenderer when ThreadData.hrirFilters is set
+	public SpatialRenderer renderer;
+	//Used instead of threeDEngine when ThreadData.bSinglePrecision is set
+	public FloatThreeDEngine floatEngine;
 	private Main.ThreadData data;
-	private SphericalCoordinates sphericalCoordsSS;
 	private int channels;
 	private int sampleRate;
 	private int bufferSize;
@@ -28,6 +33,19 @@ public class ProcessAudio {
 	public float delayVD1, delayVD2, delayVD3, delayVD4;
 	public float gainR, gainV;
 	private double[][] threeDOut;
+	private double[][] blockIn;
+	private float[] floatBlock;
+	private ReverbBus reverb;
+	//Converts the engine rate back to the output rate, when they differ
+	private PolyphaseResampler outResampler;
+	private double[][] resampled, planarOut;
+	private long framesIn, framesOut;
+	private boolean bEndOfInput = false;
+	private double sourceAzimuth, sourcePolar, sourceDistance;
+	//When set, the source follows it on the engine's sample clock
+	private Trajectory trajectory;
+	private long engineFrames;
+	private double[] trajectoryGain;
 	
 	public ProcessAudio(Main.ThreadData tDataIn, int channelsIn, int sampleRateIn, int frameSizeIn, int bufferSizeIn) {
 		
@@ -36,17 +54,262 @@ public class ProcessAudio {
 		sampleRate = sampleRateIn;
 		bufferSize = bufferSizeIn;
 		
-		threeDEngine = new ThreeDEngine(data, channels, sampleRate, bufferSize, 5000.0, 5.0);
-		threeDOut = new double [channels][bufferSize];
+		if (data.bSinglePrecision && data.hrirFilters != null) {
+			throw new IllegalArgumentException("HRIR rendering is only available in double precision");
+		}
+		//Only ThreeDEngine and VbapRenderer feed the reverb bus
+		if (data.bReverb && (data.bSinglePrecision || data.hrirFilters != null)) {
+			throw new IllegalArgumentException("Reverb is only available in double precision without HRIRs");
+		}
+		if (data.speakerLayout != null) {
+			if (data.bSinglePrecision) throw new IllegalArgumentException("Speaker layouts are only rendered in double precision");
+			if (data.hrirFilters != null) throw new IllegalArgumentException("HRIRs are rendered for headphones, not a speaker layout");
+			if (channels != data.speakerLayout.getChannels()) {
+				throw new IllegalArgumentException("Speaker layout " + data.speakerLayout.getName() + " has " + data.speakerLayout.getChannels() + " channels, not " + channels);
+			}
+		}
+		if (data.bSinglePrecision) {
+			floatEngine = new FloatThreeDEngine(data, channels, sampleRate, bufferSize, 5000.0, 5.0);
+			floatBlock = new float[channels * bufferSize];
+		}
+		else {
+			if (data.hrirFilters != null) renderer = new HrirRenderer(data.hrirFilters, sampleRate, bufferSize);
+			else if (data.speakerLayout != null) renderer = new VbapRenderer(data, data.speakerLayout, sampleRate, bufferSize, 5000.0);
+			else renderer = new ThreeDEngine(data, channels, sampleRate, bufferSize, 5000.0, 5.0);
+			threeDOut = new double [channels][bufferSize];
+			if (data.speakerLayout != null) reverb = new ReverbBus(channels, sampleRate, bufferSize, data.speakerLayout.getPannedChannels());
+			else reverb = new ReverbBus(channels, sampleRate, bufferSize);
+			blockIn = new double[channels][bufferSize];
+		}
+	}
+	
+	public boolean isSinglePrecision() {
+		return floatEngine != null;
+	}
+	
+	//renderBlock then produces blocks at outputRate, converted from the engine rate
+	public void setOutputRate(int outputRate) {
+		if (outputRate == sampleRate) {
+			outResampler = null;
+			return;
+		}
+		outResampler = new PolyphaseResampler(channels, sampleRate, outputRate, data.resampleQuality);
+		//Room for a block plus the converter's look-ahead, which is flushed out after the last block
+		resampled = new double[channels][outResampler.maxFlushedOutputFrames(bufferSize)];
+		if (floatEngine != null) planarOut = new double[channels][bufferSize];
+	}
+	
+	//Moves data.soundSourcePos along the trajectory as blocks are rendered, from time 0 at the first block. Any gain
+	//it has is applied to the input sample by sample
+	public void setTrajectory(Trajectory trajectoryIn) {
+		trajectory = trajectoryIn;
+		//Positions are sampled at block ends, so the ramps must arrive there
+		if (floatEngine != null) floatEngine.setLinearRamps(trajectory != null);
+		else renderer.setLinearRamps(trajectory != null);
+		if (trajectory != null && trajectory.hasGain() && trajectoryGain == null) trajectoryGain = new double[bufferSize];
+	}
+	
+	public int getChannels() {
+		return channels;
+	}
+	
+	//Engine frames per block
+	public int getBufferSize() {
+		return bufferSize;
+	}
+	
+	//Most frames renderBlock can write, for sizing its output buffer
+	public int getMaxOutputFrames() {
+		return outResampler == null ? bufferSize : resampled[0].length;
+	}
+	
+	//True once renderBlock has read the last of the input
+	public boolean isEndOfInput() {
+		return bEndOfInput;
 	}
 	
 	public double[][] processData(double[][] inputBuffer) {
 		
-		//Convert sound source position to spherical coordinates, swapping the y and z axes
-		sphericalCoordsSS = SphericalCoordinates.fromCartesian(data.soundSourcePos.getX(), data.soundSourcePos.getZ(), data.soundSourcePos.getY());
-		threeDOut = threeDEngine.processDirection(inputBuffer, sphericalCoordsSS);
+		//Convert the source's position relative to the listener to spherical coordinates, swapping the y and z axes
+		locate();
+		threeDOut = renderer.processDirection(inputBuffer, sourceAzimuth, sourcePolar, sourceDistance);
 		
+		//The renderer's buffer is overwritten by the next block anyway, so the reverb is added in place
+		double[] send = renderer.getReverbSend();
+		if (send != null) reverb.addSend(send, bufferSize);
+		reverb.process(threeDOut, bufferSize);
 
 		return threeDOut;
 	}
+	
+	//Spatialises an interleaved block in place and returns it
+	public float[] processData(float[] interleaved) {
+		
+		locate();
+		floatEngine.process(interleaved, 0, channels, 1, interleaved, 0, channels, 1, bufferSize, sourceAzimuth, sourcePolar, sourceDistance);
+		return interleaved;
+	}
+	
+	//Direction and distance of the source from the listener, without allocating a vector per block
+	private void locate() {
+		Vector3D pos = data.soundSourcePos;
+		Vector3D listener = data.listenerPos;
+		double x = pos.getX() - listener.getX();
+		double y = pos.getY() - listener.getY();
+		double z = pos.getZ() - listener.getZ();
+		sourceAzimuth = azimuth(x, z);
+		sourcePolar = polar(x, z, y);
+		sourceDistance = Math.sqrt((x * x) + (y * y) + (z * z));
+	}
+	
+	//Reads, spatialises, gain controls and encodes one block into bufOut, in whichever precision this was built for.
+	//A short final block is padded with silence. Returns the frames written to bufOut, which is the frames read unless
+	//there is an output rate, and 0 at the end of the input
+	public int renderBlock(SampleSource source, PcmCodec outCodec, byte[] bufOut) throws IOException {
+		
+		int inChannels = source.getFormat().getChannels();
+		if (floatEngine != null) return renderBlock(floatBlock, source.read(floatBlock, 0, bufferSize), inChannels, outCodec, bufOut);
+		return renderBlock(blockIn, source.read(blockIn, 0, bufferSize), inChannels, outCodec, bufOut);
+	}
+	
+	//As renderBlock, for a block already decoded into in[channels][bufferSize] (double precision only). in is used as scratch
+	public int renderBlock(double[][] in, int framesRead, int inChannels, PcmCodec outCodec, byte[] bufOut) {
+		
+		bEndOfInput = framesRead < bufferSize;
+		//An input that ends on a block boundary reaches here with nothing read, and the look-ahead is still to come out
+		if (framesRead == 0) return outResampler == null ? 0 : flushAndEncode(outCodec, bufOut);
+		for (int i = 0; i < inChannels; i++) {
+			Arrays.fill(in[i], framesRead, bufferSize, 0.0);
+		}
+		//If mono, stream will give a mono buffer. Copy it to the other channels
+		spreadChannels(in, inChannels, channels, bufferSize);
+		if (advanceTrajectory()) {
+			for (int i = 0; i < channels; i++) { //channels
+				double[] channel = in[i];
+				for (int j = 0; j < bufferSize; j++) { //data
+					channel[j] *= trajectoryGain[j];
+				}
+			}
+		}
+		double[][] processed = processData(in);
+		//Apply attenuation to prevent clipping
+		StreamAudio.automaticGainControl(processed, outCodec.getFullScale());
+		if (outResampler == null) {
+			//Convert back from double to byte array
+			outCodec.encode(processed, 0, bufOut, 0, bufferSize);
+			return framesRead;
+		}
+		return resampleAndEncode(processed, framesRead, outCodec, bufOut);
+	}
+	
+	//As renderBlock, for an interleaved block already decoded into in[channels * bufferSize] (single precision only)
+	public int renderBlock(float[] in, int framesRead, int inChannels, PcmCodec outCodec, byte[] bufOut) {
+		
+		bEndOfInput = framesRead < bufferSize;
+		//An input that ends on a block boundary reaches here with nothing read, and the look-ahead is still to come out
+		if (framesRead == 0) return outResampler == null ? 0 : flushAndEncode(outCodec, bufOut);
+		Arrays.fill(in, framesRead * inChannels, bufferSize * inChannels, 0.0f);
+		//If mono, spread each sample over the output channels, working backwards so nothing is overwritten before it is read
+		if (inChannels != channels) {
+			for (int j = bufferSize - 1; j >= 0; j--) { //data
+				float value = in[j];
+				for (int i = 0; i < channels; i++) { //channels
+					in[(j * channels) + i] = value;
+				}
+			}
+		}
+		if (advanceTrajectory()) {
+			for (int j = 0; j < bufferSize; j++) { //data
+				double gain = trajectoryGain[j];
+				for (int i = 0; i < channels; i++) { //channels
+					in[(j * channels) + i] *= gain;
+				}
+			}
+		}
+		processData(in);
+		StreamAudio.automaticGainControl(in, channels * bufferSize, outCodec.getFullScale());
+		if (outResampler == null) {
+			outCodec.encode(in, 0, bufOut, 0, bufferSize);
+			return framesRead;
+		}
+		for (int j = 0; j < bufferSize; j++) { //data
+			for (int i = 0; i < channels; i++) { //channels
+				planarOut[i][j] = in[(j * channels) + i];
+			}
+		}
+		return resampleAndEncode(planarOut, framesRead, outCodec, bufOut);
+	}
+	
+	//Fills the rows of buffer past the input's channels: a mono input is copied to them and any other input gives them
+	//the mean of its channels, so a mix of every row is still the input's mono mix
+	static void spreadChannels(double[][] buffer, int inChannels, int channels, int frames) {
+		if (inChannels >= channels) return;
+		if (inChannels == 1) {
+			for (int i = 1; i < channels; i++) { //channels
+				System.arraycopy(buffer[0], 0, buffer[i], 0, frames);
+			}
+			return;
+		}
+		double[] mean = buffer[inChannels];
+		for (int j = 0; j < frames; j++) { //data
+			double sum = 0.0;
+			for (int i = 0; i < inChannels; i++) { //channels
+				sum += buffer[i][j];
+			}
+			mean[j] = sum / inChannels;
+		}
+		for (int i = inChannels + 1; i < channels; i++) { //channels
+			System.arraycopy(mean, 0, buffer[i], 0, frames);
+		}
+	}
+	
+	//Places the source for the coming block and fills trajectoryGain. The spline is evaluated at the block's last
+	//sample, and setTrajectory has made the renderer's direction and distance ramps linear so they arrive there, so
+	//the source is on the path at every block end whatever the block size. Gain is evaluated per sample. Returns true
+	//if there is a gain to apply
+	private boolean advanceTrajectory() {
+		if (trajectory == null) return false;
+		data.soundSourcePos = trajectory.position((double)(engineFrames + bufferSize - 1) / sampleRate);
+		boolean bGain = trajectory.hasGain();
+		if (bGain) trajectory.fillGain((double)engineFrames / sampleRate, sampleRate, trajectoryGain, bufferSize);
+		engineFrames += bufferSize;
+		return bGain;
+	}
+	
+	//Back to the output rate. After the last block the look-ahead is flushed and the padding dropped, so the
+	//output has the length the ratio gives
+	private int resampleAndEncode(double[][] processed, int framesRead, PcmCodec outCodec, byte[] bufOut) {
+		
+		int written = outResampler.process(processed, 0, bufferSize, resampled, 0, resampled[0].length);
+		framesIn += framesRead;
+		if (bEndOfInput) written = flushResampler(written);
+		framesOut += written;
+		outCodec.encode(resampled, 0, bufOut, 0, written);
+		return written;
+	}
+	
+	private int flushAndEncode(PcmCodec outCodec, byte[] bufOut) {
+		int written = flushResampler(0);
+		framesOut += written;
+		outCodec.encode(resampled, 0, bufOut, 0, written);
+		return written;
+	}
+	
+	//Runs the look-ahead out after the written frames already in resampled and returns the total trimmed to the length
+	//the ratio gives. Once that length is reached, flushing again gives 0
+	private int flushResampler(int written) {
+		written += outResampler.flush(resampled, written, resampled[0].length - written);
+		return (int)Math.max(0, Math.min(written, outResampler.outputFramesFor(framesIn) - framesOut));
+	}
+	
+	//Same angles as SphericalCoordinates.fromCartesian, without allocating a coordinates object per block
+	static double azimuth(double x, double y) {
+		double azimuth = Math.atan2(y, x);
+		return azimuth < 0 ? azimuth + 2 * Math.PI : azimuth;
+	}
+	
+	static double polar(double x, double y, double z) {
+		double r = Math.sqrt((x * x) + (y * y) + (z * z));
+		return r == 0 ? 0.0 : Math.acos(z / r);
+	}
 }
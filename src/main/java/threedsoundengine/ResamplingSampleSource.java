@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.IOException;
+import java.util.Arrays;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+
+//Presents another SampleSource at a different sample rate through a PolyphaseResampler, so everything downstream
+//runs at the engine rate. The converter's look-ahead is flushed with silence at the end, so the output lines up with
+//the input and has the length the ratio gives
+public class ResamplingSampleSource implements SampleSource {
+
+	private static final int CHUNK = 1024;
+
+	private final SampleSource source;
+	private final PolyphaseResampler resampler;
+	private final AudioFormat format;
+	private final int channels;
+	private final double ratio;
+	private final double[][] inBuf;
+	private int inPos = 0, inCount = 0;
+	private long inputFrames = 0, outputFrames = 0;
+	private boolean bEnd = false;
+	//Planar scratch for the interleaved read, grown on first use
+	private double[][] planar = new double[0][0];
+
+	public ResamplingSampleSource(SampleSource sourceIn, int sampleRate, PolyphaseResampler.Quality quality) {
+
+		source = sourceIn;
+		AudioFormat inFormat = source.getFormat();
+		channels = inFormat.getChannels();
+		resampler = new PolyphaseResampler(channels, (int)inFormat.getSampleRate(), sampleRate, quality);
+		ratio = (double)sampleRate / resampler.getInputRate();
+		format = new AudioFormat(inFormat.getEncoding(), sampleRate, inFormat.getSampleSizeInBits(), channels, inFormat.getFrameSize(), sampleRate, inFormat.isBigEndian());
+		inBuf = new double[channels][CHUNK];
+	}
+
+	//Wraps source only if its rate differs from sampleRate
+	public static SampleSource atRate(SampleSource source, int sampleRate, PolyphaseResampler.Quality quality) {
+		if ((int)source.getFormat().getSampleRate() == sampleRate) return source;
+		return new ResamplingSampleSource(source, sampleRate, quality);
+	}
+
+	@Override
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	@Override
+	public long getFrameLength() {
+		long length = source.getFrameLength();
+		return length == AudioSystem.NOT_SPECIFIED ? length : Math.round(length * ratio);
+	}
+
+	@Override
+	public void setLooping(boolean bLoop) {
+		source.setLooping(bLoop);
+	}
+
+	@Override
+	public int read(double[][] dst, int dstOffset, int frames) throws IOException {
+
+		int written = 0;
+		while (written < frames) {
+			if (inPos == inCount && !refill()) break;
+			int want = frames - written;
+			//Once the input has ended, stop at the length the ratio gives
+			if (bEnd) want = (int)Math.min(want, Math.round(inputFrames * ratio) - outputFrames);
+			if (want <= 0) break;
+			int produced = resampler.process(inBuf, inPos, inCount - inPos, dst, dstOffset + written, want);
+			inPos += resampler.getConsumed();
+			written += produced;
+			outputFrames += produced;
+		}
+		return written;
+	}
+
+	//Loads the next chunk of input, or a chunk of silence to flush the filter once the input has ended
+	private boolean refill() throws IOException {
+		if (!bEnd) {
+			int n = source.read(inBuf, 0, CHUNK);
+			if (n > 0) {
+				inputFrames += n;
+				inPos = 0;
+				inCount = n;
+				return true;
+			}
+			bEnd = true;
+		}
+		if (outputFrames >= Math.round(inputFrames * ratio)) return false;
+		for (int i = 0; i < channels; i++) { //channels
+			Arrays.fill(inBuf[i], 0.0);
+		}
+		inPos = 0;
+		inCount = CHUNK;
+		return true;
+	}
+
+	@Override
+	public int read(float[] dst, int dstOffset, int frames) throws IOException {
+		if (planar.length < channels || planar[0].length < frames) planar = new double[channels][frames];
+		int framesRead = read(planar, 0, frames);
+		int index = dstOffset * channels;
+		for (int j = 0; j < framesRead; j++) { //data
+			for (int i = 0; i < channels; i++) { //channels
+				dst[index++] = (float)planar[i][j];
+			}
+		}
+		return framesRead;
+	}
+
+	//Skips to the input the output position corresponds to and restarts the filter, so the next read has a short
+	//fade-in. The position is worked out from the totals, so repeated skips do not drift
+	@Override
+	public int skip(int frames) throws IOException {
+		long consumed = inputFrames - (inCount - inPos);
+		int inFrames = (int)Math.max(0, Math.round((outputFrames + frames) / ratio) - consumed);
+		int buffered = Math.min(inFrames, inCount - inPos);
+		inPos += buffered;
+		int skipped = buffered + source.skip(inFrames - buffered);
+		inputFrames += skipped - buffered;
+		resampler.reset();
+		int outSkipped = skipped == inFrames ? frames : (int)Math.max(0, Math.round((consumed + skipped) * ratio) - outputFrames);
+		outputFrames += outSkipped;
+		return outSkipped;
+	}
+
+	@Override
+	public void close() throws IOException {
+		source.close();
+	}
+}
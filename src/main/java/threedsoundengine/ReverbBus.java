@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Arrays;
+
+//Late reverb shared by every source of a scene, so room ambience costs the same for one source as for hundreds.
+//Sources add a mono send into the bus; once per block the bus runs an 8 line feedback delay network and adds its
+//output to the mix, in stereo or spread over a speaker layout's channels. Each line has a power-of-two ring buffer (masked, no modulo), a one-pole low-pass for
+//high-frequency damping and a feedback gain for the decay time. The lines are mixed through a fast Hadamard transform,
+//which is orthogonal, so the network is lossless apart from the gains and cannot build up.
+//When no send arrives for long enough for the tail to decay away, the bus stops running until the next send
+public class ReverbBus {
+
+	public static final int LINES = 8;
+	public static final double DEFAULT_DECAY_SECONDS = 1.6;
+	//Decay time at high frequencies as a fraction of the low-frequency decay time
+	public static final double DEFAULT_DAMPING = 0.5;
+	//Mutually prime line lengths in ms, spread so the echo density builds up quickly
+	private static final double[] LINE_MS = {23.3, 28.4, 33.3, 37.7, 42.8, 47.5, 52.9, 57.9};
+	private static final double HADAMARD_SCALE = 1.0 / Math.sqrt(LINES);
+	private static final double OUTPUT_GAIN = 0.25;
+	private static final double DAMPING_CROSSOVER_HZ = 4000.0;
+
+	private final int channels;
+	private final int sampleRate;
+	//Output channel fed by each output, the delay lines feeding it, and its gain. Fixed for the life of the bus
+	private final int[] outputs;
+	private final int[][] outputLines;
+	private final double[] outputGain;
+	private final double[] taps = new double[LINES];
+	private final int bufferSize;
+	private final double[][] lines;
+	private final int mask;
+	private final int[] delays;
+	private final double[] feedback = new double[LINES];
+	private final double[] damping = new double[LINES];
+	private final double[] dampingState = new double[LINES];
+	private final double[] send;
+	private final double[] mix = new double[LINES];
+	private int writePosition = 0;
+	private boolean bSend = false;
+	private int idleFrames;
+	private int tailFrames;
+
+	//Stereo, or mono for a single channel
+	public ReverbBus(int channelsIn, int sampleRateIn, int bufferSizeIn) {
+		this(channelsIn, sampleRateIn, bufferSizeIn, channelsIn > 1 ? new int[] {0, 1} : new int[] {0});
+	}
+
+	//outputChannels are the channels the tail is spread over, e.g. every speaker of a layout but the LFE. With up to
+	//LINES outputs the lines are dealt out in turn (even lines left and odd ones right in stereo), otherwise each
+	//output takes one line and lines are reused. Gains keep the total power the same whatever the number of outputs
+	public ReverbBus(int channelsIn, int sampleRateIn, int bufferSizeIn, int[] outputChannels) {
+
+		channels = channelsIn;
+		sampleRate = sampleRateIn;
+		bufferSize = bufferSizeIn;
+		delays = new int[LINES];
+		int longest = 0;
+		for (int i = 0; i < LINES; i++) {
+			delays[i] = (int)Math.round(LINE_MS[i] * sampleRate / 1000.0);
+			longest = Math.max(longest, delays[i]);
+		}
+		int size = Integer.highestOneBit(longest) << 1;
+		mask = size - 1;
+		lines = new double[LINES][size];
+		send = new double[bufferSize];
+		idleFrames = Integer.MAX_VALUE / 2;
+		setDecay(DEFAULT_DECAY_SECONDS, DEFAULT_DAMPING);
+
+		int count = outputChannels.length;
+		outputs = outputChannels.clone();
+		outputLines = new int[count][];
+		outputGain = new double[count];
+		for (int c = 0; c < count; c++) {
+			int fed = count <= LINES ? (LINES - c + count - 1) / count : 1;
+			outputLines[c] = new int[fed];
+			for (int k = 0; k < fed; k++) {
+				outputLines[c][k] = count <= LINES ? c + (k * count) : c % LINES;
+			}
+			outputGain[c] = OUTPUT_GAIN * Math.sqrt((double)LINES / (count * fed));
+		}
+	}
+
+	//Decay time (RT60) at low frequencies, and the high-frequency decay time as a fraction of it
+	public synchronized void setDecay(double decaySeconds, double dampingRatio) {
+
+		for (int i = 0; i < LINES; i++) {
+			//Loss per pass through the line giving 60dB of decay after decaySeconds
+			double lossDb = -60.0 * delays[i] / (decaySeconds * sampleRate);
+			feedback[i] = Math.pow(10.0, lossDb / 20.0);
+			//The low-pass takes the extra loss at high frequencies: its gain at the crossover matches the shorter decay
+			double highGain = Math.pow(10.0, (lossDb / dampingRatio - lossDb) / 20.0);
+			double c = Math.cos(2 * Math.PI * DAMPING_CROSSOVER_HZ / sampleRate);
+			//Pole of a one-pole low-pass y = (1 - a) x + a y with |H| = highGain at the crossover
+			double g2 = highGain * highGain;
+			double a = 0.0;
+			if (g2 < 1.0) {
+				double qa = g2 - 1.0, qb = 2.0 * (1.0 - (g2 * c)), qc = g2 - 1.0;
+				a = (-qb + Math.sqrt((qb * qb) - (4 * qa * qc))) / (2 * qa);
+				if (a < 0.0 || a >= 1.0) a = (-qb - Math.sqrt((qb * qb) - (4 * qa * qc))) / (2 * qa);
+			}
+			damping[i] = Math.max(0.0, Math.min(0.99, a));
+		}
+		//The bus keeps running until a silent input has decayed by 90dB
+		tailFrames = (int)(1.5 * decaySeconds * sampleRate);
+	}
+
+	//Adds one source's mono send for the coming block. Not thread safe: the mixer calls it for each source in turn
+	public void addSend(double[] sourceSend, int frames) {
+		if (!bSend) {
+			Arrays.fill(send, 0, bufferSize, 0.0);
+			bSend = true;
+		}
+		for (int j = 0; j < frames; j++) { //data
+			send[j] += sourceSend[j];
+		}
+	}
+
+	//Runs the network over the block's send and adds its output into out[channels][frames]
+	public void process(double[][] out, int frames) {
+		process(out, 0, frames);
+	}
+
+	//As above, adding into out[channel][offset..offset + frames)
+	public synchronized void process(double[][] out, int offset, int frames) {
+
+		if (bSend) idleFrames = 0;
+		else if (idleFrames >= tailFrames) return;
+		else {
+			Arrays.fill(send, 0, frames, 0.0);
+			idleFrames += frames;
+			if (idleFrames >= tailFrames) {
+				clear();
+				return;
+			}
+		}
+
+		double[] m = mix;
+		int w = writePosition;
+		for (int j = 0; j < frames; j++) { //data
+			for (int i = 0; i < LINES; i++) {
+				double delayed = lines[i][(w - delays[i]) & mask];
+				taps[i] = delayed;
+				dampingState[i] = delayed + (damping[i] * (dampingState[i] - delayed));
+				m[i] = dampingState[i] * feedback[i];
+			}
+			hadamard(m);
+			double in = send[j];
+			for (int i = 0; i < LINES; i++) {
+				lines[i][w] = in + m[i];
+			}
+			w = (w + 1) & mask;
+			for (int c = 0; c < outputs.length; c++) { //channels
+				int[] fed = outputLines[c];
+				double sum = 0.0;
+				for (int k = 0; k < fed.length; k++) {
+					sum += taps[fed[k]];
+				}
+				out[outputs[c]][offset + j] += sum * outputGain[c];
+			}
+		}
+		writePosition = w;
+		bSend = false;
+	}
+
+	public synchronized void clear() {
+		for (double[] line : lines) {
+			Arrays.fill(line, 0.0);
+		}
+		Arrays.fill(dampingState, 0.0);
+		bSend = false;
+		idleFrames = tailFrames;
+	}
+
+	//In-place orthonormal 8 point Hadamard transform: three butterfly stages, then one scale
+	private static void hadamard(double[] x) {
+		for (int h = 1; h < LINES; h <<= 1) {
+			for (int i = 0; i < LINES; i += h << 1) {
+				for (int k = i; k < i + h; k++) {
+					double a = x[k], b = x[k + h];
+					x[k] = a + b;
+					x[k + h] = a - b;
+				}
+			}
+		}
+		for (int i = 0; i < LINES; i++) {
+			x[i] *= HADAMARD_SCALE;
+		}
+	}
+}
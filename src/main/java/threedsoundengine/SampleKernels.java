@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//The straight-line loops over sample arrays used on every block. The implementation is chosen once at startup:
+//the Vector API kernels when running on JDK 21+ with jdk.incubator.vector available, otherwise the scalar loops.
+//Set -Dthreedsoundengine.kernels=scalar or =vector to override the choice
+public interface SampleKernels {
+
+	SampleKernels SELECTED = select();
+
+	//dst[i] = src[i] * gain. dst may be src
+	void scale(double[] src, double[] dst, int length, double gain);
+
+	//dst[i] = src[srcOffset + i] * gain
+	void scale(double[] src, int srcOffset, double[] dst, int length, double gain);
+
+	//Largest absolute value in src[0..length)
+	double maxAbs(double[] src, int length);
+
+	//dst[dstOffset + i] = a[aOffset + i] * b[bOffset + i]
+	void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int dstOffset, int length);
+
+	//Rounds to the nearest integer (ties to even, as Math.rint) after clamping to [min, max]
+	void quantise(double[] src, int srcOffset, int[] dst, int length, double min, double max);
+
+	static SampleKernels select() {
+		String choice = System.getProperty("threedsoundengine.kernels", "auto");
+		boolean bVector = choice.equals("vector") || (choice.equals("auto") && Runtime.version().feature() >= 21);
+		if (bVector && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				return (SampleKernels)Class.forName("threedsoundengine.VectorKernels").getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				System.out.println("Vector kernels unavailable, using scalar kernels: " + e);
+			}
+		}
+		return new ScalarKernels();
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+//Block reader that decodes an input file into planar sample buffers (one channel per getFormat().getChannels())
+public interface SampleSource extends Closeable {
+
+	AudioFormat getFormat();
+
+	//Length in frames, or AudioSystem.NOT_SPECIFIED if unknown
+	long getFrameLength();
+
+	//When looping, a read that reaches the end carries on from the start within the same block
+	void setLooping(boolean bLoop);
+
+	//Decodes up to frames frames into dst starting at dstOffset. Returns the frames decoded, fewer only at the end of the input
+	int read(double[][] dst, int dstOffset, int frames) throws IOException;
+
+	//As read, but into an interleaved single precision buffer: frame j, channel i goes to dst[(dstOffset + j) * channels + i]
+	int read(float[] dst, int dstOffset, int frames) throws IOException;
+
+	//Moves the read position on by up to frames frames without decoding them. Returns the frames skipped
+	int skip(int frames) throws IOException;
+
+	//WAV files are memory-mapped; anything else AudioSystem can read is streamed
+	static SampleSource open(File file) throws UnsupportedAudioFileException, IOException {
+		if (MappedWavReader.isWav(file)) {
+			try {
+				return new MappedWavReader(file);
+			} catch (UnsupportedAudioFileException e) {
+				//A WAV encoding the mapped reader does not handle, let AudioSystem try
+			}
+		}
+		return new StreamSampleSource(file);
+	}
+}
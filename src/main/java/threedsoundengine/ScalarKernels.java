@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//Plain loops, used on Java 17 and whenever the Vector API is not available
+public final class ScalarKernels implements SampleKernels {
+
+	@Override
+	public void scale(double[] src, double[] dst, int length, double gain) {
+		for (int j = 0; j < length; j++) { //data
+			dst[j] = src[j] * gain;
+		}
+	}
+
+	@Override
+	public void scale(double[] src, int srcOffset, double[] dst, int length, double gain) {
+		for (int j = 0; j < length; j++) { //data
+			dst[j] = src[srcOffset + j] * gain;
+		}
+	}
+
+	@Override
+	public double maxAbs(double[] src, int length) {
+		double max = 0.0;
+		for (int j = 0; j < length; j++) { //data
+			if (Math.abs(src[j]) > max) max = Math.abs(src[j]);
+		}
+		return max;
+	}
+
+	@Override
+	public void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int dstOffset, int length) {
+		for (int j = 0; j < length; j++) { //data
+			dst[dstOffset + j] = a[aOffset + j] * b[bOffset + j];
+		}
+	}
+
+	@Override
+	public void quantise(double[] src, int srcOffset, int[] dst, int length, double min, double max) {
+		for (int j = 0; j < length; j++) { //data
+			double value = src[srcOffset + j];
+			if (value > max) value = max;
+			else if (value < min) value = min;
+			dst[j] = (int)Math.rint(value);
+		}
+	}
+}
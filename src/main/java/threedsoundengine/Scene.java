@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.List;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+
+//Where the sources of a SceneMixer are relative to the listener. The sources are kept in a SceneOctree, so range and
+//nearest queries do not scan the scene, and update moves only the entries of sources that left their octree leaf.
+//Once per block update also works out every source's direction and distance from the listener in one pass, which
+//the sources then render and are ranked with. Queries may come from any thread
+public class Scene {
+
+	private final SceneOctree<SceneSource> octree;
+	private volatile Vector3D listener = Vector3D.ZERO;
+
+	public Scene() {
+		octree = new SceneOctree<>(Vector3D.ZERO, 16.0, 16);
+	}
+
+	public void setListener(Vector3D listenerIn) {
+		listener = listenerIn;
+	}
+
+	public Vector3D getListener() {
+		return listener;
+	}
+
+	synchronized void add(SceneSource source) {
+		source.sceneEntry = octree.insert(source, source.position);
+	}
+
+	synchronized void remove(SceneSource source) {
+		if (source.sceneEntry != null) octree.remove(source.sceneEntry);
+		source.sceneEntry = null;
+	}
+
+	//Moves the sources to where they are at the end of the block and gives each its direction and distance from the listener
+	synchronized void update(SceneSource[] sources, double startSeconds, double endSeconds) {
+		Vector3D l = listener;
+		double lx = l.getX(), ly = l.getY(), lz = l.getZ();
+		for (SceneSource source : sources) {
+			Vector3D pos = source.advance(startSeconds, endSeconds);
+			double px = pos.getX(), py = pos.getY(), pz = pos.getZ();
+			if (source.sceneEntry != null) octree.move(source.sceneEntry, px, py, pz);
+			double x = px - lx, y = py - ly, z = pz - lz;
+			//Spherical coordinates swap the y and z axes
+			source.setDirection(ProcessAudio.azimuth(x, z), ProcessAudio.polar(x, z, y), Math.sqrt((x * x) + (y * y) + (z * z)));
+		}
+	}
+
+	public synchronized int size() {
+		return octree.size();
+	}
+
+	//Adds the sources within radius metres of the listener to out, as of the last block. Returns the number added
+	public int sourcesWithin(double radius, List<SceneSource> out) {
+		return range(listener, radius, out);
+	}
+
+	//Adds the k sources nearest the listener to out, nearest first
+	public int nearestSources(int k, List<SceneSource> out) {
+		return nearest(listener, k, out);
+	}
+
+	public synchronized int range(Vector3D centre, double radius, List<SceneSource> out) {
+		return octree.range(centre, radius, out);
+	}
+
+	public synchronized int nearest(Vector3D centre, int k, List<SceneSource> out) {
+		return octree.nearest(centre, k, out);
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Holds N sources and sums their spatialised output into one bus per block.
+//Sources are rendered in parallel on a work-stealing pool; the summing is done afterwards in source order so the mix is deterministic
+public class SceneMixer implements AutoCloseable {
+
+	private static final ThreadMXBean threadMX = ManagementFactory.getThreadMXBean();
+
+	private volatile SceneSource[] sources = new SceneSource[0];
+	private RenderTask rootTask;
+	private ForkJoinPool pool;
+	private int channels;
+	private int sampleRate;
+	private int bufferSize;
+	private long framesRendered = 0;
+	private long lastBlockCpuNanos, lastBlockWallNanos;
+	private boolean bCpuTime;
+	//Rendered once per block from the sum of the sources' sends
+	private final ReverbBus reverb;
+	//Source placement relative to the listener, updated before each block
+	private final Scene scene = new Scene();
+	//When set, only the loudest sources are rendered and the rest are virtual
+	private volatile VoiceManager voiceManager;
+
+	//reverbOutputs are the channels the reverb tail is spread over, or null for stereo
+	public SceneMixer(int channelsIn, int sampleRateIn, int bufferSizeIn, int parallelism, int[] reverbOutputs) {
+		channels = channelsIn;
+		sampleRate = sampleRateIn;
+		bufferSize = bufferSizeIn;
+		pool = new ForkJoinPool(parallelism);
+		reverb = reverbOutputs != null ? new ReverbBus(channels, sampleRate, bufferSize, reverbOutputs) : new ReverbBus(channels, sampleRate, bufferSize);
+		bCpuTime = threadMX.isCurrentThreadCpuTimeSupported();
+		if (bCpuTime && !threadMX.isThreadCpuTimeEnabled()) threadMX.setThreadCpuTimeEnabled(true);
+	}
+
+	public SceneMixer(int channelsIn, int sampleRateIn, int bufferSizeIn, int parallelism) {
+		this(channelsIn, sampleRateIn, bufferSizeIn, parallelism, null);
+	}
+
+	public SceneMixer(int channelsIn, int sampleRateIn, int bufferSizeIn, int[] reverbOutputs) {
+		this(channelsIn, sampleRateIn, bufferSizeIn, Runtime.getRuntime().availableProcessors(), reverbOutputs);
+	}
+
+	public SceneMixer(int channelsIn, int sampleRateIn, int bufferSizeIn) {
+		this(channelsIn, sampleRateIn, bufferSizeIn, Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	public synchronized void addSource(SceneSource source) {
+		if (source.getSampleRate() != sampleRate) {
+			throw new IllegalArgumentException("Source sample rate " + source.getSampleRate() + " does not match the mixer rate " + sampleRate);
+		}
+		if (source.getFrames() != bufferSize) {
+			throw new IllegalArgumentException("Source block size " + source.getFrames() + " does not match the mixer block size " + bufferSize);
+		}
+		SceneSource[] newSources = Arrays.copyOf(sources, sources.length + 1);
+		newSources[sources.length] = source;
+		scene.add(source);
+		sources = newSources;
+	}
+
+	public synchronized void removeSource(SceneSource source) {
+		SceneSource[] newSources = new SceneSource[sources.length];
+		int count = 0;
+		for (SceneSource s : sources) {
+			if (s != source) newSources[count++] = s;
+		}
+		sources = Arrays.copyOf(newSources, count);
+		if (count < newSources.length) scene.remove(source);
+	}
+
+	public Scene getScene() {
+		return scene;
+	}
+
+	public ReverbBus getReverb() {
+		return reverb;
+	}
+
+	public void setVoiceManager(VoiceManager voiceManagerIn) {
+		voiceManager = voiceManagerIn;
+	}
+
+	public VoiceManager getVoiceManager() {
+		return voiceManager;
+	}
+
+	public SceneSource[] getSources() {
+		return sources;
+	}
+
+	//Renders one block of every source into bus[channels][bufferSize]. Returns false once every source has finished
+	public boolean mix(double[][] bus) {
+
+		long startTime = System.nanoTime();
+		SceneSource[] current = sources;
+
+		//The task tree is rebuilt only when the set of sources changes, and reused otherwise
+		if (rootTask == null || rootTask.sources != current) {
+			rootTask = current.length == 0 ? null : new RenderTask(current, 0, current.length);
+		}
+
+		//Sources are placed where they are on the block's last sample; those on a trajectory ramp linearly to arrive there
+		scene.update(current, (double)framesRendered / sampleRate, (double)(framesRendered + bufferSize - 1) / sampleRate);
+		VoiceManager voices = voiceManager;
+		if (voices != null) voices.assign(current, bufferSize);
+		for (SceneSource source : current) {
+			source.prepareRenderer();
+		}
+		if (rootTask != null) {
+			rootTask.reinitialize();
+			pool.invoke(rootTask);
+		}
+
+		//Sum into the output bus
+		for (int i = 0; i < channels; i++) {
+			Arrays.fill(bus[i], 0, bufferSize, 0.0);
+		}
+		boolean bActive = false;
+		long cpuNanos = 0;
+		for (SceneSource source : current) {
+			cpuNanos += source.getCpuNanos();
+			double[][] out = source.getOutput();
+			if (out == null) {
+				//A virtual source is still playing
+				if (!source.isFinished()) bActive = true;
+				continue;
+			}
+			bActive = true;
+			double gain = source.gain;
+			double[] fade = source.getVoiceFade();
+			for (int i = 0; i < channels; i++) { //channels
+				double[] busChannel = bus[i];
+				double[] outChannel = out[i];
+				if (fade == null) {
+					for (int j = 0; j < bufferSize; j++) { //data
+						busChannel[j] += outChannel[j] * gain;
+					}
+				}
+				else {
+					for (int j = 0; j < bufferSize; j++) { //data
+						busChannel[j] += outChannel[j] * gain * fade[j];
+					}
+				}
+			}
+			double[] send = source.getReverbSend();
+			if (send != null) {
+				//The send is the renderer's scratch, so the source gain and fade can be applied in place
+				if (fade == null) {
+					if (gain != 1.0) {
+						for (int j = 0; j < bufferSize; j++) { //data
+							send[j] *= gain;
+						}
+					}
+				}
+				else {
+					for (int j = 0; j < bufferSize; j++) { //data
+						send[j] *= gain * fade[j];
+					}
+				}
+				reverb.addSend(send, bufferSize);
+			}
+		}
+		reverb.process(bus, bufferSize);
+
+		framesRendered += bufferSize;
+		lastBlockCpuNanos = cpuNanos;
+		lastBlockWallNanos = System.nanoTime() - startTime;
+		return bActive;
+	}
+
+	//CPU time spent by all workers on the last block (0 if the JVM cannot measure thread CPU time)
+	public long getLastBlockCpuNanos() {
+		return lastBlockCpuNanos;
+	}
+
+	public long getLastBlockWallNanos() {
+		return lastBlockWallNanos;
+	}
+
+	//Wall time of the last block as a fraction of its duration, above 1.0 the deadline was missed
+	public double getLastBlockLoad() {
+		return lastBlockWallNanos / (bufferSize * 1e9 / sampleRate);
+	}
+
+	@Override
+	public void close() throws IOException {
+		pool.shutdown();
+		for (SceneSource source : sources) {
+			source.close();
+		}
+	}
+
+	private class RenderTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final SceneSource[] sources;
+		private final int lo, hi;
+		private final RenderTask left, right;
+
+		RenderTask(SceneSource[] sourcesIn, int loIn, int hiIn) {
+			sources = sourcesIn;
+			lo = loIn;
+			hi = hiIn;
+			if (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				left = new RenderTask(sources, lo, mid);
+				right = new RenderTask(sources, mid, hi);
+			}
+			else {
+				left = null;
+				right = null;
+			}
+		}
+
+		@Override
+		protected void compute() {
+			if (left == null) {
+				SceneSource source = sources[lo];
+				long cpuStart = bCpuTime ? threadMX.getCurrentThreadCpuTime() : 0;
+				try {
+					source.render();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				source.setCpuNanos(bCpuTime ? threadMX.getCurrentThreadCpuTime() - cpuStart : 0);
+			}
+			else {
+				left.reinitialize();
+				right.reinitialize();
+				invokeAll(left, right);
+			}
+		}
+	}
+}
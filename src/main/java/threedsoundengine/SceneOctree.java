@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+
+//Point octree for scene queries. Items live in the leaves, each of which splits into eight once it holds more than
+//leafCapacity items, and the root doubles in size towards any item placed outside it. Moving an item that stays inside
+//its leaf only updates its coordinates; one that leaves is unlinked and reinserted from the nearest enclosing node,
+//so a scene of mostly slow objects costs O(moved) per block rather than a rebuild. Branches that empty out collapse
+//back into leaves. Not thread safe: the mixer updates and queries it from one thread
+public class SceneOctree<T> {
+
+	//Leaves this small stop splitting and just grow, so coincident items cannot split forever
+	private static final double MIN_HALF_SIZE = 1e-3;
+
+	//Handle for one item, returned by insert and passed back to move and remove
+	public static final class Entry<T> {
+		public final T item;
+		private double x, y, z;
+		private Node<T> node;
+		private int slot;
+
+		private Entry(T itemIn) {
+			item = itemIn;
+		}
+
+		public Vector3D getPosition() {
+			return Vector3D.of(x, y, z);
+		}
+	}
+
+	private static final class Node<T> {
+		final double cx, cy, cz, half;
+		Node<T> parent;
+		Node<T>[] children;
+		Entry<T>[] entries;
+		int count;
+		//Items in this node and below
+		int total;
+
+		@SuppressWarnings("unchecked")
+		Node(Node<T> parentIn, double cxIn, double cyIn, double czIn, double halfIn, int capacity) {
+			parent = parentIn;
+			cx = cxIn;
+			cy = cyIn;
+			cz = czIn;
+			half = halfIn;
+			entries = (Entry<T>[])new Entry<?>[capacity];
+		}
+
+		boolean contains(double x, double y, double z) {
+			return Math.abs(x - cx) <= half && Math.abs(y - cy) <= half && Math.abs(z - cz) <= half;
+		}
+
+		int octant(double x, double y, double z) {
+			return (x >= cx ? 1 : 0) | (y >= cy ? 2 : 0) | (z >= cz ? 4 : 0);
+		}
+
+		//Squared distance from a point to this node's cube, 0 inside
+		double distanceSq(double x, double y, double z) {
+			double dx = Math.max(0.0, Math.abs(x - cx) - half);
+			double dy = Math.max(0.0, Math.abs(y - cy) - half);
+			double dz = Math.max(0.0, Math.abs(z - cz) - half);
+			return (dx * dx) + (dy * dy) + (dz * dz);
+		}
+	}
+
+	private final int leafCapacity;
+	private Node<T> root;
+	//Scratch for nearest, kept between calls so queries do not allocate
+	private double[] bestDistanceSq = new double[0];
+	private Object[] best = new Object[0];
+	private int bestCount;
+
+	//The initial cube is centred on centre with half-size halfSize metres
+	public SceneOctree(Vector3D centre, double halfSize, int leafCapacityIn) {
+		if (halfSize <= 0.0 || leafCapacityIn < 1) throw new IllegalArgumentException("Invalid octree size " + halfSize + " or leaf capacity " + leafCapacityIn);
+		leafCapacity = leafCapacityIn;
+		root = new Node<>(null, centre.getX(), centre.getY(), centre.getZ(), halfSize, leafCapacity);
+	}
+
+	public int size() {
+		return root.total;
+	}
+
+	public Entry<T> insert(T item, Vector3D position) {
+		Entry<T> entry = new Entry<>(item);
+		entry.x = position.getX();
+		entry.y = position.getY();
+		entry.z = position.getZ();
+		place(entry);
+		return entry;
+	}
+
+	public void remove(Entry<T> entry) {
+		Node<T> node = entry.node;
+		if (node == null) return;
+		unlink(entry);
+		collapse(node);
+	}
+
+	public void move(Entry<T> entry, Vector3D position) {
+		move(entry, position.getX(), position.getY(), position.getZ());
+	}
+
+	public void move(Entry<T> entry, double x, double y, double z) {
+		entry.x = x;
+		entry.y = y;
+		entry.z = z;
+		Node<T> leaf = entry.node;
+		if (leaf == null || leaf.contains(x, y, z)) return;
+		unlink(entry);
+		//Back up to the first node that still encloses the new position and go down from there
+		Node<T> node = leaf.parent;
+		while (node != null && !node.contains(x, y, z)) {
+			node = node.parent;
+		}
+		if (node == null) place(entry);
+		else {
+			//unlink took the entry off the totals all the way up
+			for (Node<T> above = node.parent; above != null; above = above.parent) {
+				above.total++;
+			}
+			insertBelow(node, entry);
+		}
+		collapse(leaf);
+	}
+
+	//Adds every item within radius of centre to out. Returns the number added
+	public int range(Vector3D centre, double radius, List<T> out) {
+		return range(root, centre.getX(), centre.getY(), centre.getZ(), radius * radius, out);
+	}
+
+	//Adds the k items nearest to centre to out, nearest first. Returns the number added
+	@SuppressWarnings("unchecked")
+	public int nearest(Vector3D centre, int k, List<T> out) {
+		if (k <= 0) return 0;
+		if (best.length < k) {
+			best = new Object[k];
+			bestDistanceSq = new double[k];
+		}
+		bestCount = 0;
+		nearest(root, centre.getX(), centre.getY(), centre.getZ(), k);
+		for (int n = 0; n < bestCount; n++) {
+			out.add(((Entry<T>)best[n]).item);
+			best[n] = null;
+		}
+		return bestCount;
+	}
+
+	//Grows the root until it encloses the entry, then puts the entry in a leaf
+	private void place(Entry<T> entry) {
+		while (!root.contains(entry.x, entry.y, entry.z)) {
+			grow(entry.x, entry.y, entry.z);
+		}
+		insertBelow(root, entry);
+	}
+
+	//New root twice the size with the old root as the child on the side away from the point
+	private void grow(double x, double y, double z) {
+		Node<T> old = root;
+		double half = old.half;
+		double cx = old.cx + (x >= old.cx ? half : -half);
+		double cy = old.cy + (y >= old.cy ? half : -half);
+		double cz = old.cz + (z >= old.cz ? half : -half);
+		Node<T> grown = new Node<>(null, cx, cy, cz, half * 2.0, leafCapacity);
+		split(grown);
+		grown.children[grown.octant(old.cx, old.cy, old.cz)] = old;
+		old.parent = grown;
+		grown.total = old.total;
+		root = grown;
+	}
+
+	private void insertBelow(Node<T> node, Entry<T> entry) {
+		while (node.children != null) {
+			node.total++;
+			node = node.children[node.octant(entry.x, entry.y, entry.z)];
+		}
+		node.total++;
+		if (node.count == node.entries.length) {
+			if (node.half > MIN_HALF_SIZE) {
+				split(node);
+				//Push the leaf's items down, then retry from the new branch
+				for (int n = 0; n < node.count; n++) {
+					Entry<T> moved = node.entries[n];
+					node.entries[n] = null;
+					Node<T> child = node.children[node.octant(moved.x, moved.y, moved.z)];
+					child.total++;
+					add(child, moved);
+				}
+				node.count = 0;
+				node.total--;
+				insertBelow(node, entry);
+				return;
+			}
+			node.entries = Arrays.copyOf(node.entries, node.entries.length * 2);
+		}
+		add(node, entry);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void split(Node<T> node) {
+		double h = node.half * 0.5;
+		node.children = (Node<T>[])new Node<?>[8];
+		for (int octant = 0; octant < 8; octant++) {
+			node.children[octant] = new Node<>(node, node.cx + ((octant & 1) != 0 ? h : -h), node.cy + ((octant & 2) != 0 ? h : -h),
+					node.cz + ((octant & 4) != 0 ? h : -h), h, leafCapacity);
+		}
+	}
+
+	private static <T> void add(Node<T> leaf, Entry<T> entry) {
+		entry.node = leaf;
+		entry.slot = leaf.count;
+		leaf.entries[leaf.count++] = entry;
+	}
+
+	//Takes the entry out of its leaf, filling the hole with the leaf's last item, and fixes the totals above
+	private void unlink(Entry<T> entry) {
+		Node<T> leaf = entry.node;
+		int last = --leaf.count;
+		Entry<T> tail = leaf.entries[last];
+		leaf.entries[entry.slot] = tail;
+		tail.slot = entry.slot;
+		leaf.entries[last] = null;
+		for (Node<T> node = leaf; node != null; node = node.parent) {
+			node.total--;
+		}
+		entry.node = null;
+	}
+
+	//Folds the highest branch above leaf whose items fit in half a leaf back into a single leaf
+	private void collapse(Node<T> leaf) {
+		Node<T> branch = null;
+		for (Node<T> node = leaf.parent; node != null && node.total <= leafCapacity / 2; node = node.parent) {
+			branch = node;
+		}
+		if (branch == null) return;
+		//A branch keeps the entries array it had as a leaf, which is at least leafCapacity long
+		branch.count = 0;
+		gather(branch, branch.entries, branch);
+		branch.children = null;
+	}
+
+	private void gather(Node<T> node, Entry<T>[] entries, Node<T> into) {
+		if (node.children == null) {
+			for (int n = 0; n < node.count; n++) {
+				Entry<T> entry = node.entries[n];
+				entry.node = into;
+				entry.slot = into.count;
+				entries[into.count++] = entry;
+			}
+			return;
+		}
+		for (Node<T> child : node.children) {
+			if (child.total > 0) gather(child, entries, into);
+		}
+	}
+
+	private int range(Node<T> node, double x, double y, double z, double radiusSq, List<T> out) {
+		if (node.total == 0 || node.distanceSq(x, y, z) > radiusSq) return 0;
+		int found = 0;
+		if (node.children == null) {
+			for (int n = 0; n < node.count; n++) {
+				Entry<T> entry = node.entries[n];
+				if (distanceSq(entry, x, y, z) <= radiusSq) {
+					out.add(entry.item);
+					found++;
+				}
+			}
+			return found;
+		}
+		for (Node<T> child : node.children) {
+			found += range(child, x, y, z, radiusSq, out);
+		}
+		return found;
+	}
+
+	//Depth first, the child holding the point first, skipping any node further away than the k-th best so far
+	private void nearest(Node<T> node, double x, double y, double z, int k) {
+		if (node.total == 0) return;
+		if (bestCount == k && node.distanceSq(x, y, z) >= bestDistanceSq[k - 1]) return;
+		if (node.children == null) {
+			for (int n = 0; n < node.count; n++) {
+				Entry<T> entry = node.entries[n];
+				double d = distanceSq(entry, x, y, z);
+				if (bestCount == k && d >= bestDistanceSq[k - 1]) continue;
+				//Insertion into the sorted best list, dropping the furthest when full
+				int at = bestCount < k ? bestCount++ : k - 1;
+				while (at > 0 && bestDistanceSq[at - 1] > d) {
+					bestDistanceSq[at] = bestDistanceSq[at - 1];
+					best[at] = best[at - 1];
+					at--;
+				}
+				bestDistanceSq[at] = d;
+				best[at] = entry;
+			}
+			return;
+		}
+		int first = node.octant(x, y, z);
+		nearest(node.children[first], x, y, z, k);
+		for (int octant = 0; octant < 8; octant++) {
+			if (octant != first) nearest(node.children[octant], x, y, z, k);
+		}
+	}
+
+	private static <T> double distanceSq(Entry<T> entry, double x, double y, double z) {
+		double dx = entry.x - x, dy = entry.y - y, dz = entry.z - z;
+		return (dx * dx) + (dy * dy) + (dz * dz);
+	}
+}
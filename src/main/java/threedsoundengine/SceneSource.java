@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+
+//One spatialised source of a SceneMixer, with its own input stream, position and renderer state
+public class SceneSource implements Closeable {
+
+	private Main.ThreadData data;
+	private SampleSource source;
+	private int sourceChannels;
+	private SpatialRenderer renderer;
+	private double[][] inBuffer;
+	private double[][] outBuffer;
+	private int channels;
+	private int sampleRate;
+	private Trajectory trajectory;
+	public volatile Vector3D position;
+	public volatile double gain = 1.0;
+	public volatile boolean bLoop = false;
+	//Weighs the source's loudness when a VoiceManager ranks it, e.g. above 1.0 for dialogue
+	public volatile double priority = 1.0;
+	private boolean bFinished = false;
+	//Input frames read or skipped so far, at the engine rate
+	private long framesRead = 0;
+	private long cpuNanos;
+	//Placement, set by the mixer's Scene before each block
+	SceneOctree.Entry<SceneSource> sceneEntry;
+	private double azimuth, polar, distance;
+	private double blockStartSeconds;
+	private double[] trajectoryGain;
+	//Voice state, set by the mixer's VoiceManager before each block. A source that is not rendered is virtual
+	boolean bRendered = true;
+	boolean bVoiceAssigned = false;
+	double voiceTarget = 1.0;
+	final ParameterRamp voiceFade;
+	private double[] fadeGain;
+	private boolean bFading = false;
+	//Set on promotion after a full fade-out, so the renderer restarts on the current placement before the next block
+	private boolean bRestart = false;
+
+	public SceneSource(Main.ThreadData dataIn, File file, Vector3D positionIn, int channelsIn, int frames) throws UnsupportedAudioFileException, IOException {
+		this(dataIn, file, positionIn, channelsIn, 0, frames);
+	}
+
+	//Files at another rate than sampleRateIn are converted to it, so sources of any rate can share a mixer.
+	//A sampleRateIn of 0 keeps the file's rate
+	public SceneSource(Main.ThreadData dataIn, File file, Vector3D positionIn, int channelsIn, int sampleRateIn, int frames) throws UnsupportedAudioFileException, IOException {
+
+		data = dataIn;
+		source = SampleSource.open(file);
+		if (sampleRateIn != 0) source = ResamplingSampleSource.atRate(source, sampleRateIn, data.resampleQuality);
+		sourceChannels = source.getFormat().getChannels();
+		channels = channelsIn;
+		sampleRate = (int)source.getFormat().getSampleRate();
+		position = positionIn;
+
+		inBuffer = new double[Math.max(channels, sourceChannels)][frames];
+		voiceFade = new ParameterRamp(sampleRate, 1.0);
+	}
+
+	//The renderer holds seconds of delay line, so it is only built once the source is first rendered. A scene of
+	//thousands of mostly virtual sources then only pays for the ones that become audible. Called by the mixer on its
+	//own thread after the voices are assigned, so the allocation and the engine's direction format never land on a
+	//worker in the middle of a block
+	void prepareRenderer() {
+		if (!bRendered || bFinished) return;
+		if (renderer == null) {
+			if (data.hrirFilters != null) renderer = new HrirRenderer(data.hrirFilters, sampleRate, inBuffer[0].length);
+			else if (data.speakerLayout != null) renderer = new VbapRenderer(data, data.speakerLayout, sampleRate, inBuffer[0].length, 5000.0);
+			else renderer = new ThreeDEngine(data, channels, sampleRate, inBuffer[0].length, 5000.0, 5.0);
+		}
+		if (bRestart) {
+			//The virtual source is not tracked block by block, so the ramps are put straight onto where it is now
+			//rather than sweeping in from wherever it was demoted, or from silence
+			renderer.reset(azimuth, polar, distance);
+			bRestart = false;
+		}
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getFrames() {
+		return inBuffer[0].length;
+	}
+
+	//When set, the position follows the trajectory on the mixer's render clock instead of the position field
+	public void setTrajectory(Trajectory trajectoryIn) {
+		trajectory = trajectoryIn;
+	}
+
+	public boolean isFinished() {
+		return bFinished;
+	}
+
+	//Input frames consumed so far at the engine rate, rendered or not, so the length of the input once finished
+	public long getFramesRead() {
+		return framesRead;
+	}
+
+	//Output of the last rendered block, owned by the engine
+	public double[][] getOutput() {
+		return outBuffer;
+	}
+
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	void setCpuNanos(long cpuNanosIn) {
+		cpuNanos = cpuNanosIn;
+	}
+
+	//Position at the end of the coming block, following the trajectory if there is one
+	Vector3D advance(double startSeconds, double endSeconds) {
+		blockStartSeconds = startSeconds;
+		if (trajectory != null) position = trajectory.position(endSeconds);
+		return position;
+	}
+
+	//Direction (as SphericalCoordinates gives it) and distance from the listener for the coming block
+	void setDirection(double azimuthIn, double polarIn, double distanceIn) {
+		azimuth = azimuthIn;
+		polar = polarIn;
+		distance = distanceIn;
+	}
+
+	public double getAzimuth() {
+		return azimuth;
+	}
+
+	public double getPolar() {
+		return polar;
+	}
+
+	public double getDistance() {
+		return distance;
+	}
+
+	//Estimated level for ranking: gain x distance attenuation x priority, 0 once finished
+	double loudness() {
+		if (bFinished) return 0.0;
+		return gain * DistanceModel.gain(distance, data.getParameters().referenceDistance) * priority;
+	}
+
+	//Called by the VoiceManager on the mixer thread before the block is rendered
+	void setVoice(boolean bWanted, int frames) {
+		if (!bVoiceAssigned) {
+			//Nothing to fade from on the first block
+			bVoiceAssigned = true;
+			voiceTarget = bWanted ? 1.0 : 0.0;
+			voiceFade.reset(voiceTarget);
+		}
+		else if (bWanted && voiceTarget == 0.0) {
+			//Coming back from virtual: the renderer's history is stale, so it starts again on the current placement
+			if (voiceFade.getValue() == 0.0) bRestart = true;
+			voiceTarget = 1.0;
+		}
+		else if (!bWanted && voiceTarget == 1.0) voiceTarget = 0.0;
+
+		bRendered = voiceTarget == 1.0 || voiceFade.getValue() > 0.0;
+		bFading = voiceFade.getValue() != voiceTarget;
+		if (bFading) {
+			if (fadeGain == null) fadeGain = new double[frames];
+			voiceFade.fill(voiceTarget, fadeGain, frames);
+		}
+	}
+
+	//Per-sample voice gain for the last block while promoting or demoting, otherwise null
+	double[] getVoiceFade() {
+		return bFading ? fadeGain : null;
+	}
+
+	//Reads and spatialises one block at the placement the Scene gave it. Runs on a mixer worker thread, so only
+	//touches this source's state
+	void render() throws IOException {
+
+		if (bFinished) {
+			outBuffer = null;
+			return;
+		}
+
+		int frames = inBuffer[0].length;
+		source.setLooping(bLoop);
+		if (!bRendered) {
+			//Virtual: the input moves on without being decoded or spatialised
+			int skipped = source.skip(frames);
+			framesRead += skipped;
+			if (skipped < frames) bFinished = true;
+			outBuffer = null;
+			return;
+		}
+		int read = source.read(inBuffer, 0, frames);
+		framesRead += read;
+		if (read == 0) {
+			bFinished = true;
+			outBuffer = null;
+			return;
+		}
+		if (read < frames) {
+			for (int i = 0; i < sourceChannels; i++) {
+				Arrays.fill(inBuffer[i], read, frames, 0.0);
+			}
+			bFinished = true;
+		}
+		ProcessAudio.spreadChannels(inBuffer, sourceChannels, channels, frames);
+		Trajectory path = trajectory;
+		if (path != null && path.hasGain()) {
+			if (trajectoryGain == null) trajectoryGain = new double[frames];
+			path.fillGain(blockStartSeconds, sampleRate, trajectoryGain, frames);
+			for (int i = 0; i < channels; i++) { //channels
+				double[] channel = inBuffer[i];
+				for (int j = 0; j < frames; j++) { //data
+					channel[j] *= trajectoryGain[j];
+				}
+			}
+		}
+
+		//Trajectory positions are sampled at block ends, so the ramps must arrive there
+		renderer.setLinearRamps(trajectory != null);
+		outBuffer = renderer.processDirection(inBuffer, azimuth, polar, distance);
+	}
+
+	//Send into the mixer's reverb bus for the last block, or null
+	public double[] getReverbSend() {
+		return outBuffer == null ? null : renderer.getReverbSend();
+	}
+
+	@Override
+	public void close() throws IOException {
+		source.close();
+	}
+}
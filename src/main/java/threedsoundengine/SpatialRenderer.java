@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import org.apache.commons.geometry.euclidean.threed.SphericalCoordinates;
+
+//A per-source spatialiser. The returned buffer is owned by the renderer and is overwritten by the next call.
+//Angles are as SphericalCoordinates gives them for the engine's (x, z, y) axes: azimuth in [0, 2pi) with 0 to the
+//right and pi / 2 in front, polar in [0, pi] with 0 straight up
+public interface SpatialRenderer {
+
+	double[][] processDirection(double[][] inputBuffer, double azimuth, double polar);
+
+	default double[][] processDirection(double[][] inputBuffer, SphericalCoordinates sphericalCoordsSS) {
+		return processDirection(inputBuffer, sphericalCoordsSS.getAzimuth(), sphericalCoordsSS.getPolar());
+	}
+
+	//Distance from the listener in metres, for renderers that model it; the others ignore it
+	default double[][] processDirection(double[][] inputBuffer, double azimuth, double polar, double distance) {
+		return processDirection(inputBuffer, azimuth, polar);
+	}
+
+	//Mono send into the shared ReverbBus for the last block, owned by the renderer, or null when it sends nothing
+	default double[] getReverbSend() {
+		return null;
+	}
+
+	//While set, parameters ramp linearly onto each block's targets whatever the settings' ramp shape, so they arrive on
+	//the block's last sample. Set while a Trajectory sampled there drives the source. Renderers that already change
+	//over exactly one block ignore it
+	default void setLinearRamps(boolean bLinear) {
+	}
+
+	//Drops everything carried over from earlier blocks, as if newly built
+	default void reset() {
+	}
+
+	//Drops the history as reset does, but starts the ramps on this placement, as if the renderer had been following it.
+	//Renderers that take up a new direction on their first block anyway just reset
+	default void reset(double azimuth, double polar, double distance) {
+		reset();
+	}
+}
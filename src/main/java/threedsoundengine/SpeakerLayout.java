@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+package threedsoundengine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//Loudspeaker positions for vector-base amplitude panning (VBAP), built in or read from a layout file with one
+//"label azimuth elevation" line per output channel, in channel order. Angles are in degrees: azimuth anticlockwise from
+//the front (left positive, as in ITU-R BS.775) and elevation up from the horizontal. A speaker labelled LFE takes no
+//panned signal and needs no angles. Blank lines and lines starting with # are skipped.
+//The speakers are triangulated once, when the layout is built. A horizontal layout is split into adjacent pairs and
+//one with height into the triangles of its convex hull, with an imaginary speaker below (or above) where the real ones
+//leave the listener uncovered; its gain is shared by the real speakers around it. Each pair or triangle keeps the
+//inverse of its speaker matrix, so the gains for a direction cost a few multiply-adds per candidate and no allocation
+public final class SpeakerLayout {
+
+	//Built-in layouts in the layout file format, channels in WAVE order
+	private static final String[][] BUILT_IN = {
+		{"stereo", "FL 30 0\nFR -30 0"},
+		{"quad", "FL 45 0\nFR -45 0\nBL 135 0\nBR -135 0"},
+		{"5.1", "FL 30 0\nFR -30 0\nFC 0 0\nLFE\nSL 110 0\nSR -110 0"},
+		{"7.1", "FL 30 0\nFR -30 0\nFC 0 0\nLFE\nBL 150 0\nBR -150 0\nSL 90 0\nSR -90 0"},
+		{"7.1.4", "FL 30 0\nFR -30 0\nFC 0 0\nLFE\nBL 150 0\nBR -150 0\nSL 90 0\nSR -90 0\nTFL 45 45\nTFR -45 45\nTBL 135 45\nTBR -135 45"},
+	};
+	//WAVE_FORMAT_EXTENSIBLE speaker positions in channel mask bit order. A file's channels must follow this order for
+	//its mask to name them
+	private static final String[] WAVE_SPEAKERS = {"FL", "FR", "FC", "LFE", "BL", "BR", "FLC", "FRC", "BC", "SL", "SR", "TC", "TFL", "TFC", "TFR", "TBL", "TBC", "TBR"};
+	//Speakers within this many degrees of the horizontal make a horizontal layout
+	private static final double HORIZONTAL_DEGREES = 10.0;
+	//Gains this far below zero still count as inside a pair or triangle
+	private static final double EPSILON = 1e-9;
+	private static final double PLANE_TOLERANCE = 1e-7;
+
+	private final String name;
+	private final String[] labels;
+	private final boolean[] bLfe;
+	private final int channelMask;
+	//Unit vectors in the engine's (x, z, y) axes, 3 per speaker: the real panned speakers, then any imaginary ones
+	private final double[] speakers;
+	private final int realSpeakers;
+	//Output channel of each real panned speaker
+	private final int[] channelOf;
+	//Real speakers each imaginary one hands its gain to
+	private final int[][] neighbours;
+	//2 for pairs, 3 for triangles, 1 for a single speaker
+	private final int dimensions;
+	private final int setCount;
+	//Speaker indices of each pair or triangle, and per set the vectors w[m] with gain m = direction . w[m]
+	private final int[] sets;
+	private final double[] inverses;
+
+	private SpeakerLayout(String nameIn, String[] labelsIn, double[] azimuths, double[] elevations, boolean[] bLfeIn) {
+
+		name = nameIn;
+		labels = labelsIn;
+		bLfe = bLfeIn;
+		channelMask = waveMask(labels);
+
+		int panned = 0;
+		double minElevation = Double.MAX_VALUE, maxElevation = -Double.MAX_VALUE;
+		for (int i = 0; i < labels.length; i++) {
+			if (bLfe[i]) continue;
+			panned++;
+			minElevation = Math.min(minElevation, elevations[i]);
+			maxElevation = Math.max(maxElevation, elevations[i]);
+		}
+		if (panned == 0) throw new IllegalArgumentException("Speaker layout " + name + " has no speakers to pan between");
+		realSpeakers = panned;
+		boolean bHorizontal = panned <= 2 || (minElevation >= -HORIZONTAL_DEGREES && maxElevation <= HORIZONTAL_DEGREES);
+		dimensions = panned == 1 ? 1 : bHorizontal ? 2 : 3;
+
+		//Imaginary speakers close the hull where a layout with height has nothing below or above the listener
+		List<double[]> imaginary = new ArrayList<>();
+		if (dimensions == 3 && minElevation > -HORIZONTAL_DEGREES) imaginary.add(new double[] {0.0, 0.0, -1.0});
+		if (dimensions == 3 && maxElevation < HORIZONTAL_DEGREES) imaginary.add(new double[] {0.0, 0.0, 1.0});
+		speakers = new double[(panned + imaginary.size()) * 3];
+		channelOf = new int[panned];
+		int k = 0;
+		for (int i = 0; i < labels.length; i++) {
+			if (bLfe[i]) continue;
+			double azimuth = Math.toRadians(azimuths[i]);
+			double elevation = bHorizontal ? 0.0 : Math.toRadians(elevations[i]);
+			speakers[k * 3] = -Math.cos(elevation) * Math.sin(azimuth);
+			speakers[(k * 3) + 1] = Math.cos(elevation) * Math.cos(azimuth);
+			speakers[(k * 3) + 2] = Math.sin(elevation);
+			channelOf[k++] = i;
+		}
+		for (double[] vector : imaginary) {
+			System.arraycopy(vector, 0, speakers, (k++) * 3, 3);
+		}
+
+		List<int[]> found = dimensions == 2 ? pairs() : dimensions == 3 ? triangles(k) : new ArrayList<>();
+		if (dimensions > 1 && found.isEmpty()) throw new IllegalArgumentException("Speaker layout " + name + " has no usable speaker pairs");
+		setCount = found.size();
+		sets = new int[setCount * dimensions];
+		inverses = new double[setCount * dimensions * dimensions];
+		for (int s = 0; s < setCount; s++) {
+			System.arraycopy(found.get(s), 0, sets, s * dimensions, dimensions);
+			if (dimensions == 2) invertPair(s);
+			else invertTriangle(s);
+		}
+
+		neighbours = new int[imaginary.size()][];
+		for (int v = 0; v < imaginary.size(); v++) {
+			Set<Integer> around = new HashSet<>();
+			for (int s = 0; s < setCount; s++) {
+				boolean bUses = false;
+				for (int m = 0; m < 3; m++) {
+					bUses |= sets[(s * 3) + m] == panned + v;
+				}
+				for (int m = 0; bUses && m < 3; m++) {
+					if (sets[(s * 3) + m] < panned) around.add(sets[(s * 3) + m]);
+				}
+			}
+			neighbours[v] = around.stream().mapToInt(Integer::intValue).sorted().toArray();
+		}
+	}
+
+	//A built-in layout (stereo, quad, 5.1, 7.1 or 7.1.4) or a layout file
+	public static SpeakerLayout forName(String nameOrFile) throws IOException {
+		for (String[] builtIn : BUILT_IN) {
+			if (builtIn[0].equalsIgnoreCase(nameOrFile)) return parse(builtIn[0], new StringReader(builtIn[1]));
+		}
+		File file = new File(nameOrFile);
+		try (Reader reader = new FileReader(file)) {
+			return parse(file.getName(), reader);
+		}
+	}
+
+	public static SpeakerLayout parse(String name, Reader in) throws IOException {
+
+		List<String> labels = new ArrayList<>();
+		List<double[]> angles = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(in)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				String[] fields = line.split("[,\\s]+");
+				boolean bLfe = fields[0].equalsIgnoreCase("LFE");
+				if (fields.length < 2 && !bLfe) throw new IOException("Expected label azimuth elevation but found: " + line);
+				labels.add(fields[0]);
+				angles.add(new double[] {fields.length >= 2 ? Double.parseDouble(fields[1]) : 0.0, fields.length >= 3 ? Double.parseDouble(fields[2]) : 0.0, bLfe ? 1.0 : 0.0});
+			}
+		}
+		if (labels.isEmpty()) throw new IOException("Speaker layout " + name + " has no speakers");
+
+		double[] azimuths = new double[labels.size()];
+		double[] elevations = new double[labels.size()];
+		boolean[] bLfe = new boolean[labels.size()];
+		for (int i = 0; i < labels.size(); i++) {
+			azimuths[i] = angles.get(i)[0];
+			elevations[i] = angles.get(i)[1];
+			bLfe[i] = angles.get(i)[2] != 0.0;
+		}
+		return new SpeakerLayout(name, labels.toArray(new String[0]), azimuths, elevations, bLfe);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getChannels() {
+		return labels.length;
+	}
+
+	public String getLabel(int channel) {
+		return labels[channel];
+	}
+
+	public boolean isLfe(int channel) {
+		return bLfe[channel];
+	}
+
+	//The output channels speakers are panned to, which leaves out the LFE
+	public int[] getPannedChannels() {
+		return channelOf.clone();
+	}
+
+	//WAVE_FORMAT_EXTENSIBLE dwChannelMask, or 0 when the labels are not WAVE speaker names in WAVE order
+	public int getChannelMask() {
+		return channelMask;
+	}
+
+	//Pairs or triangles the directions are panned between
+	public int getSetCount() {
+		return setCount;
+	}
+
+	//Fills gains[channel] for a direction given as SpatialRenderer angles, with unit power over the speakers and 0 on
+	//the LFE. A horizontal layout pans the direction's projection onto the horizontal plane. hint is the set returned
+	//for the previous direction, tried first since a moving source usually stays in it. Returns the set used.
+	//Only reads the layout, so one layout can serve any number of renderers and threads
+	public int gains(double azimuth, double polar, double[] gains, int hint) {
+
+		Arrays.fill(gains, 0, labels.length, 0.0);
+		if (dimensions == 1) {
+			gains[channelOf[0]] = 1.0;
+			return 0;
+		}
+		double sinPolar = Math.sin(polar);
+		double x = sinPolar * Math.cos(azimuth);
+		double y = sinPolar * Math.sin(azimuth);
+		double z = dimensions == 3 ? Math.cos(polar) : 0.0;
+		if (dimensions == 2 && (x * x) + (y * y) < EPSILON) {
+			//Straight above or below a horizontal layout: every speaker equally
+			double g = 1.0 / Math.sqrt(realSpeakers);
+			for (int k = 0; k < realSpeakers; k++) {
+				gains[channelOf[k]] = g;
+			}
+			return hint;
+		}
+
+		int stride = dimensions * dimensions;
+		int best = -1;
+		double bestMin = Double.NEGATIVE_INFINITY;
+		int start = hint >= 0 && hint < setCount ? hint : 0;
+		for (int n = 0; n < setCount; n++) {
+			int s = start + n;
+			if (s >= setCount) s -= setCount;
+			double min = Double.MAX_VALUE;
+			for (int m = 0; m < dimensions; m++) {
+				min = Math.min(min, gain(s * stride, m, x, y, z));
+			}
+			if (min > bestMin) {
+				bestMin = min;
+				best = s;
+			}
+			if (min >= -EPSILON) break;
+		}
+
+		if (bestMin < -EPSILON && dimensions == 2) {
+			//Outside every pair, in the gap of a layout that does not surround the listener: the nearest speaker
+			int nearest = 0;
+			double nearestDot = Double.NEGATIVE_INFINITY;
+			for (int k = 0; k < realSpeakers; k++) {
+				double dot = (x * speakers[k * 3]) + (y * speakers[(k * 3) + 1]);
+				if (dot > nearestDot) {
+					nearestDot = dot;
+					nearest = k;
+				}
+			}
+			gains[channelOf[nearest]] = 1.0;
+			return hint;
+		}
+
+		double power = 0.0;
+		for (int m = 0; m < dimensions; m++) {
+			double g = Math.max(0.0, gain(best * stride, m, x, y, z));
+			int speaker = sets[(best * dimensions) + m];
+			if (speaker < realSpeakers) gains[channelOf[speaker]] += g;
+			else {
+				int[] around = neighbours[speaker - realSpeakers];
+				for (int k = 0; k < around.length; k++) {
+					gains[channelOf[around[k]]] += g / around.length;
+				}
+			}
+		}
+		for (int i = 0; i < labels.length; i++) { //channels
+			power += gains[i] * gains[i];
+		}
+		if (power > 0.0) {
+			double scale = 1.0 / Math.sqrt(power);
+			for (int i = 0; i < labels.length; i++) { //channels
+				gains[i] *= scale;
+			}
+		}
+		return best;
+	}
+
+	private double gain(int base, int m, double x, double y, double z) {
+		int w = base + (m * dimensions);
+		double g = (x * inverses[w]) + (y * inverses[w + 1]);
+		return dimensions == 3 ? g + (z * inverses[w + 2]) : g;
+	}
+
+	//Neighbouring speakers around the horizontal circle, skipping gaps of half a turn or more
+	private List<int[]> pairs() {
+
+		Integer[] order = new Integer[realSpeakers];
+		double[] angle = new double[realSpeakers];
+		for (int k = 0; k < realSpeakers; k++) {
+			order[k] = k;
+			angle[k] = Math.atan2(speakers[(k * 3) + 1], speakers[k * 3]);
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(angle[a], angle[b]));
+
+		List<int[]> found = new ArrayList<>();
+		for (int n = 0; n < realSpeakers; n++) {
+			int a = order[n];
+			int b = order[(n + 1) % realSpeakers];
+			double gap = angle[b] - angle[a];
+			if (n == realSpeakers - 1) gap += 2 * Math.PI;
+			if (gap > PLANE_TOLERANCE && gap < Math.PI - PLANE_TOLERANCE) found.add(new int[] {a, b});
+		}
+		return found;
+	}
+
+	//Faces of the convex hull of the speakers, by testing every triple for a plane with no speaker outside it. Faces
+	//with more than three speakers, such as a square of height speakers, are split into a fan of triangles
+	private List<int[]> triangles(int count) {
+
+		List<int[]> found = new ArrayList<>();
+		Set<String> faces = new HashSet<>();
+		double[] normal = new double[3];
+		for (int i = 0; i < count; i++) {
+			for (int j = i + 1; j < count; j++) {
+				for (int k = j + 1; k < count; k++) {
+					double[] e1 = difference(j, i);
+					double[] e2 = difference(k, i);
+					normal[0] = (e1[1] * e2[2]) - (e1[2] * e2[1]);
+					normal[1] = (e1[2] * e2[0]) - (e1[0] * e2[2]);
+					normal[2] = (e1[0] * e2[1]) - (e1[1] * e2[0]);
+					double length = Math.sqrt(dot(normal, normal, 0));
+					if (length < PLANE_TOLERANCE) continue;
+					for (int r = 0; r < 3; r++) {
+						normal[r] /= length;
+					}
+					double d = dot(normal, speakers, i * 3);
+					double above = Double.NEGATIVE_INFINITY, below = Double.POSITIVE_INFINITY;
+					List<Integer> onPlane = new ArrayList<>();
+					for (int l = 0; l < count; l++) {
+						double side = dot(normal, speakers, l * 3) - d;
+						above = Math.max(above, side);
+						below = Math.min(below, side);
+						if (Math.abs(side) <= PLANE_TOLERANCE) onPlane.add(l);
+					}
+					if (above > PLANE_TOLERANCE && below < -PLANE_TOLERANCE) continue;
+					//Distance of the face from the listener, with the normal pointing out of the hull
+					double distance = above > PLANE_TOLERANCE ? -d : d;
+					if (distance < PLANE_TOLERANCE) throw new IllegalArgumentException("Speaker layout " + name + " does not surround the listener");
+					if (onPlane.size() == 3) found.add(new int[] {i, j, k});
+					else if (faces.add(onPlane.toString())) fan(onPlane, normal, found);
+				}
+			}
+		}
+		return found;
+	}
+
+	//Triangulates a convex face by sorting its speakers around the centre and fanning out from the first
+	private void fan(List<Integer> face, double[] normal, List<int[]> found) {
+
+		double[] centre = new double[3];
+		for (int l : face) {
+			for (int r = 0; r < 3; r++) {
+				centre[r] += speakers[(l * 3) + r] / face.size();
+			}
+		}
+		double[] u = new double[3];
+		for (int r = 0; r < 3; r++) {
+			u[r] = speakers[(face.get(0) * 3) + r] - centre[r];
+		}
+		double[] v = {(normal[1] * u[2]) - (normal[2] * u[1]), (normal[2] * u[0]) - (normal[0] * u[2]), (normal[0] * u[1]) - (normal[1] * u[0])};
+		double[] angle = new double[speakers.length / 3];
+		for (int l : face) {
+			double du = 0.0, dv = 0.0;
+			for (int r = 0; r < 3; r++) {
+				double offset = speakers[(l * 3) + r] - centre[r];
+				du += offset * u[r];
+				dv += offset * v[r];
+			}
+			angle[l] = Math.atan2(dv, du);
+		}
+		List<Integer> ring = new ArrayList<>(face);
+		ring.sort((a, b) -> Double.compare(angle[a], angle[b]));
+		for (int n = 1; n < ring.size() - 1; n++) {
+			found.add(new int[] {ring.get(0), ring.get(n), ring.get(n + 1)});
+		}
+	}
+
+	//w[0] and w[1] such that a direction p = g0 a + g1 b has gm = p . w[m]
+	private void invertPair(int s) {
+		int a = sets[s * 2] * 3, b = sets[(s * 2) + 1] * 3;
+		double det = (speakers[a] * speakers[b + 1]) - (speakers[a + 1] * speakers[b]);
+		int w = s * 4;
+		inverses[w] = speakers[b + 1] / det;
+		inverses[w + 1] = -speakers[b] / det;
+		inverses[w + 2] = -speakers[a + 1] / det;
+		inverses[w + 3] = speakers[a] / det;
+	}
+
+	//The columns of the inverse of the matrix with rows a, b and c: (b x c, c x a, a x b) / (a . (b x c))
+	private void invertTriangle(int s) {
+		int[] rows = {sets[s * 3] * 3, sets[(s * 3) + 1] * 3, sets[(s * 3) + 2] * 3};
+		int w = s * 9;
+		for (int m = 0; m < 3; m++) {
+			int b = rows[(m + 1) % 3], c = rows[(m + 2) % 3];
+			inverses[w + (m * 3)] = (speakers[b + 1] * speakers[c + 2]) - (speakers[b + 2] * speakers[c + 1]);
+			inverses[w + (m * 3) + 1] = (speakers[b + 2] * speakers[c]) - (speakers[b] * speakers[c + 2]);
+			inverses[w + (m * 3) + 2] = (speakers[b] * speakers[c + 1]) - (speakers[b + 1] * speakers[c]);
+		}
+		double det = (speakers[rows[0]] * inverses[w]) + (speakers[rows[0] + 1] * inverses[w + 1]) + (speakers[rows[0] + 2] * inverses[w + 2]);
+		for (int r = 0; r < 9; r++) {
+			inverses[w + r] /= det;
+		}
+	}
+
+	private double[] difference(int a, int b) {
+		return new double[] {speakers[a * 3] - speakers[b * 3], speakers[(a * 3) + 1] - speakers[(b * 3) + 1], speakers[(a * 3) + 2] - speakers[(b * 3) + 2]};
+	}
+
+	private static double dot(double[] vector, double[] points, int offset) {
+		return (vector[0] * points[offset]) + (vector[1] * points[offset + 1]) + (vector[2] * points[offset + 2]);
+	}
+
+	static int waveMask(String[] labels) {
+		int mask = 0;
+		int last = -1;
+		for (String label : labels) {
+			int bit = -1;
+			for (int b = 0; b < WAVE_SPEAKERS.length; b++) {
+				if (WAVE_SPEAKERS[b].equalsIgnoreCase(label)) bit = b;
+			}
+			if (bit <= last) return 0;
+			mask |= 1 << bit;
+			last = bit;
+		}
+		return mask;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d channels, %d speaker %s", name, labels.length, setCount, dimensions == 3 ? "triangles" : "pairs");
+	}
+}
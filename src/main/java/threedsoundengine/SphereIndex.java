@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.Arrays;
+
+//Nearest-direction index over the sphere on an equal-angle cubed-sphere grid. Each cell keeps the directions that can
+//be nearest to some point inside it: every direction within (distance from the cell centre to its nearest direction
+//plus twice the cell radius) of the centre. A lookup maps a vector to its cell in O(1) and scans that short list
+public final class SphereIndex {
+
+	private final double[][] vectors;
+	private final int gridSize;
+	private final int[] cellOffsets;
+	private final int[] candidates;
+
+	//Builds the index for unit vectors, with roughly one direction per cell
+	public SphereIndex(double[][] vectorsIn) {
+		vectors = vectorsIn;
+		gridSize = Math.max(1, (int)Math.ceil(Math.sqrt(vectors.length / 6.0)));
+		int cells = 6 * gridSize * gridSize;
+		cellOffsets = new int[cells + 1];
+		int[] list = new int[vectors.length];
+		int[] all = new int[Math.max(16, vectors.length)];
+		int count = 0;
+		double[] centre = new double[3];
+		double[] corner = new double[3];
+		for (int cell = 0; cell < cells; cell++) {
+			int face = cell / (gridSize * gridSize);
+			int i = (cell / gridSize) % gridSize;
+			int j = cell % gridSize;
+			cellVector(face, (i + 0.5) / gridSize, (j + 0.5) / gridSize, centre);
+			double radius = 0.0;
+			for (int c = 0; c < 4; c++) {
+				cellVector(face, (double)(i + (c & 1)) / gridSize, (double)(j + (c >> 1)) / gridSize, corner);
+				radius = Math.max(radius, angle(centre, corner));
+			}
+			double maxDot = -1.0;
+			for (double[] v : vectors) {
+				maxDot = Math.max(maxDot, dot(centre, v));
+			}
+			double limit = Math.acos(Math.min(1.0, maxDot)) + (2.0 * radius);
+			double minDot = limit >= Math.PI ? -1.0 : Math.cos(limit) - 1e-9;
+			int n = 0;
+			for (int d = 0; d < vectors.length; d++) {
+				if (dot(centre, vectors[d]) >= minDot) list[n++] = d;
+			}
+			if (count + n > all.length) all = Arrays.copyOf(all, Math.max(all.length * 2, count + n));
+			System.arraycopy(list, 0, all, count, n);
+			count += n;
+			cellOffsets[cell + 1] = count;
+		}
+		candidates = Arrays.copyOf(all, count);
+	}
+
+	//Restores an index saved with getGridSize, getCellOffsets and getCandidates
+	public SphereIndex(double[][] vectorsIn, int gridSizeIn, int[] cellOffsetsIn, int[] candidatesIn) {
+		vectors = vectorsIn;
+		gridSize = gridSizeIn;
+		cellOffsets = cellOffsetsIn;
+		candidates = candidatesIn;
+	}
+
+	public int getGridSize() {
+		return gridSize;
+	}
+
+	public int[] getCellOffsets() {
+		return cellOffsets;
+	}
+
+	public int[] getCandidates() {
+		return candidates;
+	}
+
+	//Index of the vector nearest to (x, y, z), which need not be normalised
+	public int nearest(double x, double y, double z) {
+		int cell = cell(x, y, z);
+		int best = candidates[cellOffsets[cell]];
+		double bestDot = Double.NEGATIVE_INFINITY;
+		for (int k = cellOffsets[cell]; k < cellOffsets[cell + 1]; k++) {
+			double[] v = vectors[candidates[k]];
+			double dot = (v[0] * x) + (v[1] * y) + (v[2] * z);
+			if (dot > bestDot) {
+				bestDot = dot;
+				best = candidates[k];
+			}
+		}
+		return best;
+	}
+
+	private int cell(double x, double y, double z) {
+		double ax = Math.abs(x), ay = Math.abs(y), az = Math.abs(z);
+		int face;
+		double u, v;
+		if (ax >= ay && ax >= az) {
+			face = x >= 0 ? 0 : 1;
+			u = y / ax;
+			v = z / ax;
+		}
+		else if (ay >= az) {
+			face = y >= 0 ? 2 : 3;
+			u = x / ay;
+			v = z / ay;
+		}
+		else {
+			face = z >= 0 ? 4 : 5;
+			u = x / az;
+			v = y / az;
+		}
+		//Equal-angle mapping keeps the cells close to the same size over the face
+		int i = gridIndex(Math.atan(u) * 4.0 / Math.PI);
+		int j = gridIndex(Math.atan(v) * 4.0 / Math.PI);
+		return (((face * gridSize) + i) * gridSize) + j;
+	}
+
+	private int gridIndex(double t) {
+		int index = (int)((t + 1.0) * 0.5 * gridSize);
+		if (index < 0) return 0;
+		if (index >= gridSize) return gridSize - 1;
+		return index;
+	}
+
+	//Unit vector at (s, t) in [0, 1] across a face, the inverse of cell()
+	private static void cellVector(int face, double s, double t, double[] out) {
+		double u = Math.tan(((2.0 * s) - 1.0) * Math.PI / 4.0);
+		double v = Math.tan(((2.0 * t) - 1.0) * Math.PI / 4.0);
+		double sign = (face & 1) == 0 ? 1.0 : -1.0;
+		double x, y, z;
+		switch (face >> 1) {
+		case 0:
+			x = sign;
+			y = u;
+			z = v;
+			break;
+		case 1:
+			x = u;
+			y = sign;
+			z = v;
+			break;
+		default:
+			x = u;
+			y = v;
+			z = sign;
+		}
+		double norm = Math.sqrt((x * x) + (y * y) + (z * z));
+		out[0] = x / norm;
+		out[1] = y / norm;
+		out[2] = z / norm;
+	}
+
+	private static double dot(double[] a, double[] b) {
+		return (a[0] * b[0]) + (a[1] * b[1]) + (a[2] * b[2]);
+	}
+
+	private static double angle(double[] a, double[] b) {
+		return Math.acos(Math.max(-1.0, Math.min(1.0, dot(a, b))));
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+//Wait-free single-producer/single-consumer ring of preallocated slots. The producer claims a free slot, fills it and
+//publishes it; the consumer peeks at the oldest published slot, uses it and releases it. Nothing is allocated after construction
+public class SpscRing<T> {
+
+	private final Object[] slots;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong(); //next slot to consume
+	private final AtomicLong tail = new AtomicLong(); //next slot to produce
+	private long cachedHead, cachedTail; //each side's last view of the other index, to avoid reading it every call
+
+	public SpscRing(int capacity, Supplier<T> factory) {
+		if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		}
+		slots = new Object[capacity];
+		for (int k = 0; k < capacity; k++) {
+			slots[k] = factory.get();
+		}
+		mask = capacity - 1;
+	}
+
+	public int capacity() {
+		return slots.length;
+	}
+
+	//Published slots not yet released; approximate when read from a third thread
+	public int size() {
+		return (int)(tail.get() - head.get());
+	}
+
+	//Producer: the next free slot, or null if the ring is full
+	@SuppressWarnings("unchecked")
+	public T claim() {
+		long t = tail.get();
+		if (t - cachedHead >= slots.length) {
+			cachedHead = head.get();
+			if (t - cachedHead >= slots.length) return null;
+		}
+		return (T)slots[(int)t & mask];
+	}
+
+	//Producer: makes the claimed slot visible to the consumer
+	public void publish() {
+		tail.lazySet(tail.get() + 1);
+	}
+
+	//Consumer: the oldest published slot, or null if the ring is empty
+	@SuppressWarnings("unchecked")
+	public T peek() {
+		long h = head.get();
+		if (h >= cachedTail) {
+			cachedTail = tail.get();
+			if (h >= cachedTail) return null;
+		}
+		return (T)slots[(int)h & mask];
+	}
+
+	//Consumer: hands the peeked slot back to the producer
+	public void release() {
+		head.lazySet(head.get() + 1);
+	}
+}
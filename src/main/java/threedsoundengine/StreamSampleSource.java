@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.File;
+import java.io.IOException;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+//SampleSource over an AudioInputStream, for formats that cannot be memory-mapped. Looping uses mark/reset,
+//so the stream buffers the whole file on the heap
+public class StreamSampleSource implements SampleSource {
+
+	private AudioInputStream stream;
+	private PcmCodec codec;
+	private byte[] buf = new byte[0];
+	private boolean bLoop = false;
+
+	public StreamSampleSource(File file) throws UnsupportedAudioFileException, IOException {
+		stream = AudioSystem.getAudioInputStream(file);
+		codec = new PcmCodec(stream.getFormat());
+		stream.mark((int)(stream.getFrameLength() * stream.getFormat().getFrameSize()));
+	}
+
+	@Override
+	public AudioFormat getFormat() {
+		return stream.getFormat();
+	}
+
+	@Override
+	public long getFrameLength() {
+		return stream.getFrameLength();
+	}
+
+	@Override
+	public void setLooping(boolean bLoopIn) {
+		bLoop = bLoopIn;
+	}
+
+	@Override
+	public int read(double[][] dst, int dstOffset, int frames) throws IOException {
+		int frameSize = codec.getFrameSize();
+		if (buf.length < frames * frameSize) buf = new byte[frames * frameSize];
+
+		int numRead = readBytes(frames * frameSize);
+		int framesRead = numRead / frameSize;
+		codec.decode(buf, 0, dst, dstOffset, framesRead);
+		return framesRead;
+	}
+
+	@Override
+	public int read(float[] dst, int dstOffset, int frames) throws IOException {
+		int frameSize = codec.getFrameSize();
+		if (buf.length < frames * frameSize) buf = new byte[frames * frameSize];
+
+		int framesRead = readBytes(frames * frameSize) / frameSize;
+		codec.decode(buf, 0, dst, dstOffset, framesRead);
+		return framesRead;
+	}
+
+	@Override
+	public int skip(int frames) throws IOException {
+		int frameSize = codec.getFrameSize();
+		if (buf.length < frames * frameSize) buf = new byte[frames * frameSize];
+		return readBytes(frames * frameSize) / frameSize;
+	}
+
+	private int readBytes(int length) throws IOException {
+		int total = 0;
+		boolean bWrapped = false;
+		while (total < length) {
+			int numRead = stream.read(buf, total, length - total);
+			if (numRead < 0) {
+				//Only wrap once per call, so an empty file cannot spin
+				if (!bLoop || bWrapped) break;
+				stream.reset();
+				bWrapped = true;
+				continue;
+			}
+			total += numRead;
+		}
+		return total;
+	}
+
+	@Override
+	public void close() throws IOException {
+		stream.close();
+	}
+}
@@ -14,36 +14,58 @@
 
 package threedsoundengine;
 
-import org.apache.commons.geometry.euclidean.oned.Vector1D;
-import org.apache.commons.geometry.euclidean.threed.SphericalCoordinates;
+import java.util.Arrays;
 
-public class ThreeDEngine {
+public class ThreeDEngine implements SpatialRenderer {
 
+	//Settings come from data when the engine belongs to the application, otherwise from setParameters and setReverb
 	private Main.ThreadData data;
+	private volatile EngineParameters parameters = EngineParameters.DEFAULTS;
+	private volatile boolean bReverb = false;
+	private volatile boolean bLinearRamps = false;
 	private int channels;
 	private int sampleRate;
-	private int writePositionD = 0;
 	private int writePositionV = 0;
-	private int readPositionD = 0;
-	private int readPositionV = 0;
 	private int bufferSize;
-	private int delayBufferDSize, delayBufferVSize;
-	private double[][] delayBufferD, delayBufferV;
+	//Delay lines are powers of two long, so positions wrap with a mask
+	private int delayBufferVSize;
+	private int maskV;
+	private double[][] delayBufferV;
 	private double[][] inBuffer;
 	private double[][] outBuffer, outBufferD, outBufferV, outBufferFiltered;
-	private int delayInSamplesD, delayInSamplesV;
-	private double[] fOld, hPanOld;
+	//Distance: propagation delay, attenuation, air absorption and the reverb send
+	private DistanceStage distanceStage;
+	//Front-back filter coefficients are shared per sample rate; the state is this engine's, STATE_SIZE per channel
+	private FrontBackFilterBank filterBank;
+	private double[] filterState;
+	//Per-direction parameters come from a shared lookup table, rebuilt only when the filter settings change
+	private DirectionTable directionTable;
+	private double[] direction;
+	//Control rate parameters are turned into per-sample values by these ramps
+	private ParameterRamp[] panRamp;
+	private ParameterRamp delayRampV, cutoffRamp;
+	private double[][] panGain;
+	private double[] delayV, cutoffPosition;
+	private boolean bFirstBlock = true;
+	private double distance = DistanceStage.CRITICAL_DISTANCE;
+	private final SampleKernels kernels = SampleKernels.SELECTED;
 
 	public ThreeDEngine(Main.ThreadData tDataIn, int channelsIn, int sampleRateIn, int bufferSizeIn, double delayBufferDSizeInMs, double delayBufferVSizeInMs) {
-		
+		this(channelsIn, sampleRateIn, bufferSizeIn, delayBufferDSizeInMs, delayBufferVSizeInMs);
 		data = tDataIn;
+		//From now on every snapshot published through data carries the table this engine needs
+		data.addDirectionFormat(channels, sampleRate);
+	}
+	
+	public ThreeDEngine(int channelsIn, int sampleRateIn, int bufferSizeIn, double delayBufferDSizeInMs, double delayBufferVSizeInMs) {
+		
 		channels = channelsIn;
 		sampleRate = sampleRateIn;
 		bufferSize = bufferSizeIn;
-		delayBufferDSize = (int)(delayBufferDSizeInMs * sampleRate / 1000.0f);
-		delayBufferVSize = (int)(delayBufferVSizeInMs * sampleRate / 1000.0f);
+		delayBufferVSize = DistanceModel.powerOfTwo((int)(delayBufferVSizeInMs * sampleRate / 1000.0f));
+		maskV = delayBufferVSize - 1;
 		
-		delayBufferD = new double[channels][delayBufferDSize];
+		distanceStage = new DistanceStage(channels, sampleRate, bufferSize, delayBufferDSizeInMs);
 		delayBufferV = new double[channels][delayBufferVSize];
 		inBuffer = new double[channels][bufferSize];
 		outBuffer = new double[channels][bufferSize];
@@ -51,140 +73,173 @@ public class ThreeDEngine {
 		outBufferV = new double[channels][bufferSize];
 		outBufferFiltered = new double[channels][bufferSize];
 		
-		fOld = new double[channels];
-		hPanOld = new double[channels];
+		filterBank = FrontBackFilterBank.forSampleRate(sampleRate);
+		filterState = new double[channels * FrontBackFilterBank.STATE_SIZE];
+		direction = new double[DirectionTable.VALUES];
+		
+		//Pan gains start from silence, as before, so the first block fades in
+		panRamp = new ParameterRamp[channels];
+		for (int i = 0; i < channels; i++) {
+			panRamp[i] = new ParameterRamp(sampleRate, 0.0);
+		}
+		delayRampV = new ParameterRamp(sampleRate, 0.0);
+		cutoffRamp = new ParameterRamp(sampleRate, 0.0);
+		panGain = new double[channels][bufferSize];
+		delayV = new double[bufferSize];
+		cutoffPosition = new double[bufferSize];
+	}
+	
+	//Used when there is no ThreadData
+	public void setParameters(EngineParameters parametersIn) {
+		//The direction table is built here, on the caller's thread, rather than by the next process call
+		parameters = parametersIn.withDirectionTable(channels, sampleRate);
+	}
+	
+	public void setReverb(boolean bReverbIn) {
+		bReverb = bReverbIn;
+	}
+	
+	@Override
+	public void setLinearRamps(boolean bLinear) {
+		bLinearRamps = bLinear;
+	}
+	
+	//Back to the state of a new engine: silent delay lines and filters, and the pan gains fading in again
+	@Override
+	public void reset() {
+		for (int i = 0; i < channels; i++) {
+			Arrays.fill(delayBufferV[i], 0.0);
+			panRamp[i].reset(0.0);
+		}
+		Arrays.fill(filterState, 0.0);
+		distanceStage.reset();
+		writePositionV = 0;
+		bFirstBlock = true;
+	}
+	
+	//As reset, but with the pan, delay and cut-off ramps already on this direction instead of fading in
+	@Override
+	public void reset(double azimuth, double polar, double distanceIn) {
+		reset();
+		EngineParameters params = data != null ? data.getParameters() : parameters;
+		lookupDirection(params, azimuth, polar);
+		for (int i = 0; i < channels; i++) {
+			panRamp[i].reset(direction[i == 0 ? DirectionTable.PAN_LEFT : DirectionTable.PAN_RIGHT]);
+		}
+		delayRampV.reset(direction[DirectionTable.DELAY]);
+		cutoffRamp.reset(filterBank.position(direction[DirectionTable.CUTOFF]));
+		bFirstBlock = false;
+		distance = distanceIn;
+	}
+	
+	@Override
+	public double[][] processDirection(double[][] inputBuffer, double azimuth, double polar, double distanceIn) {
+		process(inputBuffer, 0, outBufferFiltered, 0, inputBuffer[0].length, azimuth, polar, distanceIn);
+		return outBufferFiltered;
 	}
 	
-	public double[][] processDirection(double[][] inputBuffer, SphericalCoordinates sphericalCoordsSS) {
+	@Override
+	public double[] getReverbSend() {
+		return distanceStage.getReverbSend();
+	}
+	
+	//The returned buffer is owned by the engine and is overwritten by the next call, so no heap allocation happens per block.
+	//Azimuth is in [0, 2pi) and polar in [0, pi], as given by SphericalCoordinates
+	@Override
+	public double[][] processDirection(double[][] inputBuffer, double azimuth, double polar) {
+		return processDirection(inputBuffer, azimuth, polar, distance);
+	}
+	
+	//Spatialises inputBuffer[channel][inOffset..inOffset + frames) straight into outputBuffer[channel][outOffset..outOffset + frames),
+	//for up to the buffer size frames at a distance in metres. A mono input feeds every channel, and is only read
+	public void process(double[][] inputBuffer, int inOffset, double[][] outputBuffer, int outOffset, int frames, double azimuth, double polar, double distanceIn) {
 		
-		//Attenuate input
-		inBuffer = attenuateAndCopy(inputBuffer, 0.7f);
-		outBufferD = new double[channels][bufferSize];
-		outBufferV = new double[channels][bufferSize];
-		outBufferFiltered = new double[channels][bufferSize];
+		if (frames > bufferSize) {
+			throw new IllegalArgumentException("ThreeDEngine takes blocks of up to " + bufferSize + " frames, not " + frames);
+		}
+		distance = distanceIn;
+		//Take one consistent set of settings for the whole block
+		EngineParameters params = data != null ? data.getParameters() : parameters;
+		boolean bReverbOn = data != null ? data.bReverb : bReverb;
 		
-		double[] hPan = new double[channels];
-		double[] hPanLerp = new double[channels];
-		double vPan;
-		int panResolution = (inBuffer[0].length/10) + 1;
-		int count = panResolution;
-		hPan = horizontalPan(sphericalCoordsSS);
-		vPan = verticalPan(sphericalCoordsSS);
+		//Attenuate input
+		attenuateAndCopy(inputBuffer, inOffset, inBuffer, frames, 0.7f);
+		
+		//Control rate: every spatial parameter is looked up once per block
+		lookupDirection(params, azimuth, polar);
+		double delayInSamplesV = direction[DirectionTable.DELAY];
+		//The cut-off is ramped as a position on the filter bank's log-frequency grid
+		double cutoffTarget = filterBank.position(direction[DirectionTable.CUTOFF]);
+		if (bFirstBlock) {
+			delayRampV.reset(delayInSamplesV);
+			cutoffRamp.reset(cutoffTarget);
+			bFirstBlock = false;
+		}
 		
-		//Perform distance localisation
-		for (int j = 0; j < inBuffer[0].length; j++) { //data
-			for (int i = 0; i < inBuffer.length; i++) { //channels	
-				//Calculate read position from the delay time in milliseconds
-				delayInSamplesD = (int)(0.0 * sampleRate / 1000.0);
-				readPositionD = (writePositionD - delayInSamplesD + delayBufferDSize - 1) % delayBufferDSize;
-				//smooth panning depending on the panResolution value
-				if (count == panResolution) { //interpolate only every 100 samples
-					Vector1D lerp1D = Vector1D.of(hPanOld[i]).lerp(Vector1D.of(hPan[i]), (double)j/inBuffer[0].length);
-					hPanLerp[i] = lerp1D.getX();
-					if (i == inBuffer.length-1) count = 0;
-				}
-				//Read delayed input to output and input buffers, apply panning
-				outBufferD[i][j] = delayBufferD[i][readPositionD] * hPanLerp[i] * 1.0;
-				//Copy input buffer to delay buffer at write position and add output buffer as feedback
-				delayBufferD[i][writePositionD] = inBuffer[i][j];
-			}
-			count++;
-			writePositionD++;
-			writePositionD %= delayBufferDSize;
+		//Audio rate: ramp from the previous block's values to this block's
+		ParameterRamp.Shape shape = bLinearRamps ? ParameterRamp.Shape.LINEAR : params.rampShape;
+		for (int i = 0; i < channels; i++) {
+			panRamp[i].setShape(shape);
+			panRamp[i].fill(direction[i == 0 ? DirectionTable.PAN_LEFT : DirectionTable.PAN_RIGHT], panGain[i], frames);
 		}
+		delayRampV.setShape(shape);
+		delayRampV.fill(delayInSamplesV, delayV, frames);
+		cutoffRamp.setShape(shape);
+		cutoffRamp.fill(cutoffTarget, cutoffPosition, frames);
+		distanceStage.setDistance(distance, sampleRate, params.referenceDistance, shape, bReverbOn, frames);
+		distanceStage.send(inBuffer, frames);
+		
+		//Perform distance localisation, then panning
+		distanceStage.process(inBuffer, outBufferD, panGain, frames);
 		
 		//Perform vertical localisation
-		for (int j = 0; j < outBufferD[0].length; j++) { //data
-			for (int i = 0; i < outBufferD.length; i++) { //channels	
-				//Calculate read position
-				delayInSamplesV = (int)(verticalDelay(sphericalCoordsSS) * sampleRate / 1000.0);
-				readPositionV = (writePositionV - delayInSamplesV + delayBufferVSize - 1) % delayBufferVSize;
-				//smooth panning depending on the panResolution value
-				if (count == panResolution) { //interpolate only every 100 samples
-					Vector1D lerp1D = Vector1D.of(hPanOld[i]).lerp(Vector1D.of(hPan[i]), (double)j/outBufferD[0].length);
-					hPanLerp[i] = lerp1D.getX();
-					if (i == outBufferD.length-1) count = 0;
-				}
+		double vGain = params.vGain;
+		int writePosition = writePositionV;
+		for (int i = 0; i < channels; i++) { //channels
+			double[] delayLine = delayBufferV[i];
+			double[] in = outBufferD[i];
+			double[] out = outBufferV[i];
+			double[] pan = panGain[i];
+			writePosition = writePositionV;
+			for (int j = 0; j < frames; j++) { //data
+				//Calculate read position, interpolating between samples as the delay moves
+				double readPosition = writePosition - delayV[j] - 1 + delayBufferVSize;
+				int index = (int)readPosition;
+				double fraction = readPosition - index;
+				index &= maskV;
+				int nextIndex = (index + 1) & maskV;
+				double delayed = delayLine[index] + (fraction * (delayLine[nextIndex] - delayLine[index]));
 				//Read delayed input to output and input buffers for the delay-and-add model, apply panning
-				outBufferV[i][j] = (delayBufferV[i][readPositionV] + outBufferD[i][j]) * hPanLerp[i];
+				out[j] = (delayed + in[j]) * pan[j];
 				//Copy input buffer to delay buffer at write position and add output buffer as feedback
-				delayBufferV[i][writePositionV] = outBufferD[i][j] + (outBufferV[i][j] * data.vGain);
+				delayLine[writePosition] = in[j] + (out[j] * vGain);
+				writePosition = (writePosition + 1) & maskV;
 			}
-			count++;
-			writePositionV++;
-			writePositionV %= delayBufferVSize;
 		}
-		
-		hPanOld = hPan;
+		writePositionV = writePosition;
 		
 		outBuffer = outBufferV;
 		
-		//Apply low pass filtering to output buffer (front-back filtering)
-		double cOFrequency;
-		if (sphericalCoordsSS.getAzimuth() > 4 * Math.PI / 4 && sphericalCoordsSS.getAzimuth() < 8 * Math.PI / 4 && sphericalCoordsSS.getPolar() > 0 && sphericalCoordsSS.getPolar() < Math.PI) {
-			cOFrequency = (((((1 - hPan[0] * hPan[1]) + (1 - vPan)) / data.panDivision)) * data.upperLimitFrequency) + data.lowerLimitFrequency; //Smooth the transition to the back by altering the cutoff frequency
-		}
-		else cOFrequency = 20000.0;
-		double alpha = filter(cOFrequency);
-		for (int i = 0; i < outBuffer.length; i++) { //channels	
-			outBufferFiltered[i][0] = fOld[i] + (alpha * (outBuffer[i][0] - fOld[i]));
-			for (int j = 1; j < outBuffer[0].length; j++) { //data
-				outBufferFiltered[i][j] = outBufferFiltered[i][j - 1] + (alpha * (outBuffer[i][j] - outBufferFiltered[i][j - 1]));
-			}
-		}
-		//Save old values for the next time around for the buffer
-		for (int i = 0; i < outBufferFiltered.length; i++) { //channels
-			fOld[i] = outBufferFiltered[i][outBufferFiltered[0].length - 1];
-		}
-		
-		return outBufferFiltered;
+		//Apply low pass and shelf filtering to output buffer (front-back filtering)
+		filterBank.process(outBuffer, outputBuffer, outOffset, channels, frames, cutoffPosition, filterState);
 	}
 	
-	private double[][] attenuateAndCopy(double[][] buffer, float gain) {
-		
-		double[][] copyBuffer = new double[buffer.length][buffer[0].length];
-
-		for (int i = 0; i < buffer.length; i++) { //channels
-			for (int j = 0; j < buffer[0].length; j++) { //data
-				copyBuffer[i][j] = buffer[i][j] * gain;
-			}
+	//Fills direction for this block from the table for the current settings
+	private void lookupDirection(EngineParameters params, double azimuth, double polar) {
+		if (directionTable == null || !directionTable.matches(channels, sampleRate, params)) {
+			directionTable = params.getDirectionTable(channels, sampleRate);
+			//Only a snapshot published without this engine's format gets here, and the table is then built once
+			if (directionTable == null) directionTable = DirectionTable.forParameters(channels, sampleRate, params);
 		}
-		return copyBuffer;
+		directionTable.lookup(azimuth, polar, direction);
 	}
 	
-	private double verticalDelay(SphericalCoordinates sCoords) {
-		return 0.5 * sCoords.getPolar() / Math.PI;
-	}
-	
-	private double[] horizontalPan(SphericalCoordinates sCoords) {
-		double[] panning = new double[channels];
+	private void attenuateAndCopy(double[][] buffer, int offset, double[][] copyBuffer, int frames, float gain) {
 		
-		if (channels == 2) {
-				if (Math.cos(sCoords.getAzimuth()) < 0) {
-				panning[0] = 1.0;
-				panning[1] = Math.abs(Math.sin(sCoords.getAzimuth()));
-			}
-			else {
-				panning[0] = Math.abs(Math.sin(sCoords.getAzimuth()));
-				panning[1] = 1.0;
-			}
+		for (int i = 0; i < channels; i++) { //channels
+			double[] src = buffer[Math.min(i, buffer.length - 1)];
+			kernels.scale(src, offset, copyBuffer[i], frames, gain);
 		}
-		else panning[0] = 1.0;
-		
-		return panning;
-	}
-	
-	private double verticalPan(SphericalCoordinates sCoords) {
-		
-		return Math.abs(Math.sin(sCoords.getPolar()));
-	}
-	
-	private double filter(double cutoffFrequency) {
-		double RC = 1.0 / (cutoffFrequency * 2.0 * Math.PI);
-		double dt = 1.0 / sampleRate;
-		double a = dt / (RC + dt);
-		
-		return a;
 	}
 	
 }
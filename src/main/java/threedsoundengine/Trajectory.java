@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+
+//Sound source position as a function of render time, in the same axes as Main.ThreadData.soundSourcePos, optionally
+//with a gain. Render loops evaluate the position at the last sample of every block, with the renderer's direction and
+//distance ramps made linear so they arrive on it, and the gain at every sample. Both are timed by the frames rendered,
+//so motion is the same in real time and offline runs
+public interface Trajectory {
+
+	Vector3D position(double timeSeconds);
+
+	//Trajectories without a gain leave the level alone, and the render loop skips applying it
+	default boolean hasGain() {
+		return false;
+	}
+
+	default double gain(double timeSeconds) {
+		return 1.0;
+	}
+
+	//Gain at each of frames samples from startSeconds
+	default void fillGain(double startSeconds, int sampleRate, double[] dst, int frames) {
+		for (int j = 0; j < frames; j++) { //data
+			dst[j] = gain(startSeconds + ((double)j / sampleRate));
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+
+//Precomputed source motion, memory-mapped read-only, so a long or dense automation opens instantly and is paged in
+//as it plays. Between keyframes the position (and gain, if the file has one) follows a cubic Hermite spline with
+//Catmull-Rom tangents, so the motion has no corners at the keyframes however unevenly they are spaced.
+//Layout, little-endian:
+//  header     magic, version, flags (1 = gain), count (ints)
+//  keyframes  count * (time in seconds as a double, x, y, z floats, then gain as a float when flagged), by time
+public final class TrajectoryFile implements Trajectory {
+
+	private static final int MAGIC = 0x4A544433; //"3DTJ"
+	private static final int VERSION = 1;
+	private static final int FLAG_GAIN = 1;
+	private static final int HEADER_SIZE = 4 * 4;
+	//Float offsets of the values within a keyframe, after its time
+	private static final int X = 8, Y = 12, Z = 16, GAIN = 20;
+
+	private final ByteBuffer keyframes;
+	private final int count;
+	private final int stride;
+	private final boolean bGain;
+	//Segment of the last lookup: render time normally moves forwards, a few keyframes at a time at most
+	private int segment = 0;
+
+	private TrajectoryFile(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) throw new IOException("Trajectory file too large to map: " + file);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IOException("Not a trajectory file: " + file);
+			if (buffer.getInt(4) != VERSION) throw new IOException("Unsupported trajectory file version " + buffer.getInt(4) + ": " + file);
+			bGain = (buffer.getInt(8) & FLAG_GAIN) != 0;
+			count = buffer.getInt(12);
+			stride = bGain ? 24 : 20;
+			if (count < 1 || channel.size() < HEADER_SIZE + ((long)count * stride)) throw new IOException("Truncated trajectory file: " + file);
+			keyframes = buffer.position(HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	public static TrajectoryFile open(File file) throws IOException {
+		return new TrajectoryFile(file);
+	}
+
+	//Opens a binary trajectory file, or reads a text keyframe file (KeyframeTrajectory) if it is not one
+	public static Trajectory load(File file) throws IOException {
+		int magic;
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			magic = file.length() >= 4 ? Integer.reverseBytes(in.readInt()) : 0;
+		}
+		return magic == MAGIC ? open(file) : KeyframeTrajectory.load(file);
+	}
+
+	//Writes keyframes sorted by time; gains may be null
+	public static void write(File file, double[] times, Vector3D[] positions, double[] gains) throws IOException {
+
+		if (times.length == 0 || times.length != positions.length || (gains != null && gains.length != times.length)) {
+			throw new IllegalArgumentException("Trajectory needs at least one keyframe and one position (and gain) per time");
+		}
+		int stride = gains != null ? 24 : 20;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (times.length * stride)).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(gains != null ? FLAG_GAIN : 0).putInt(times.length);
+		for (int k = 0; k < times.length; k++) {
+			if (k > 0 && times[k] < times[k - 1]) throw new IllegalArgumentException("Keyframe times must not go backwards");
+			buffer.putDouble(times[k]).putFloat((float)positions[k].getX()).putFloat((float)positions[k].getY()).putFloat((float)positions[k].getZ());
+			if (gains != null) buffer.putFloat((float)gains[k]);
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(0);
+			raf.write(buffer.array());
+		}
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public double getDuration() {
+		return time(count - 1);
+	}
+
+	@Override
+	public Vector3D position(double timeSeconds) {
+		int k = find(timeSeconds);
+		if (k < 0) return keyframe(0);
+		if (k >= count - 1) return keyframe(count - 1);
+		double h = time(k + 1) - time(k);
+		double s = (timeSeconds - time(k)) / h;
+		return Vector3D.of(spline(X, k, s, h), spline(Y, k, s, h), spline(Z, k, s, h));
+	}
+
+	@Override
+	public boolean hasGain() {
+		return bGain;
+	}
+
+	@Override
+	public double gain(double timeSeconds) {
+		if (!bGain) return 1.0;
+		int k = find(timeSeconds);
+		if (k < 0) return value(0, GAIN);
+		if (k >= count - 1) return value(count - 1, GAIN);
+		double h = time(k + 1) - time(k);
+		//The spline may overshoot between a loud and a silent keyframe, but a gain never goes negative
+		return Math.max(0.0, spline(GAIN, k, (timeSeconds - time(k)) / h, h));
+	}
+
+	//Index of the keyframe at or before the time, -1 before the first and count - 1 at or after the last
+	private int find(double timeSeconds) {
+		if (timeSeconds < time(0)) return -1;
+		if (timeSeconds >= time(count - 1)) return count - 1;
+		int k = segment;
+		if (time(k) > timeSeconds) k = 0;
+		//A short walk forwards covers playback; anything further is a seek
+		for (int steps = 0; steps < 4 && time(k + 1) <= timeSeconds; steps++) {
+			k++;
+		}
+		if (time(k + 1) <= timeSeconds) {
+			int lo = k, hi = count - 1;
+			while (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				if (time(mid) <= timeSeconds) lo = mid;
+				else hi = mid;
+			}
+			k = lo;
+		}
+		segment = k;
+		return k;
+	}
+
+	private double time(int k) {
+		return keyframes.getDouble(k * stride);
+	}
+
+	private double value(int k, int offset) {
+		return keyframes.getFloat((k * stride) + offset);
+	}
+
+	private Vector3D keyframe(int k) {
+		return Vector3D.of(value(k, X), value(k, Y), value(k, Z));
+	}
+
+	//Slope at keyframe k from its neighbours, one-sided at the ends
+	private double tangent(int offset, int k) {
+		int before = Math.max(0, k - 1);
+		int after = Math.min(count - 1, k + 1);
+		double dt = time(after) - time(before);
+		return dt <= 0.0 ? 0.0 : (value(after, offset) - value(before, offset)) / dt;
+	}
+
+	//Cubic Hermite between keyframes k and k + 1, s in [0, 1) across a segment h seconds long
+	private double spline(int offset, int k, double s, double h) {
+		double s2 = s * s;
+		double s3 = s2 * s;
+		double h00 = (2.0 * s3) - (3.0 * s2) + 1.0;
+		double h10 = s3 - (2.0 * s2) + s;
+		double h01 = (3.0 * s2) - (2.0 * s3);
+		double h11 = s3 - s2;
+		return (h00 * value(k, offset)) + (h10 * h * tangent(offset, k)) + (h01 * value(k + 1, offset)) + (h11 * h * tangent(offset, k + 1));
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+
+//Converts a text keyframe file, or the GUI's test orbit sampled every tick, into a binary TrajectoryFile
+public class TrajectoryFileBuilder {
+
+	public static void main(String[] args) {
+
+		if (args.length < 2) {
+			printUsage();
+			System.exit(1);
+		}
+
+		try {
+			Main.ThreadData defaults = new Main.ThreadData();
+			Main.setDefaults(defaults);
+			double incrementAzimuth = defaults.incrementAzimuth;
+			double incrementPolar = defaults.incrementPolar;
+			Vector3D centre = defaults.listenerPos;
+			double seconds = 30.0;
+			for (int i = 2; i < args.length; i++) {
+				switch (args[i]) {
+				case "--azimuth-rate":
+					incrementAzimuth = Double.parseDouble(args[++i]);
+					break;
+				case "--polar-rate":
+					incrementPolar = Double.parseDouble(args[++i]);
+					break;
+				case "--centre":
+					centre = OfflineRender.parseVector(args[++i]);
+					break;
+				case "--seconds":
+					seconds = Double.parseDouble(args[++i]);
+					break;
+				default:
+					System.out.println("Unknown option: " + args[i]);
+					printUsage();
+					System.exit(1);
+				}
+			}
+
+			long startTime = System.nanoTime();
+			File out = new File(args[1]);
+			int count;
+			if (args[0].startsWith("orbit:")) {
+				OrbitTrajectory orbit = new OrbitTrajectory(OfflineRender.parseVector(args[0].substring("orbit:".length())), incrementAzimuth, incrementPolar, centre);
+				count = (int)Math.round(seconds / OrbitTrajectory.TICK_SECONDS) + 1;
+				double[] times = new double[count];
+				Vector3D[] positions = new Vector3D[count];
+				for (int k = 0; k < count; k++) {
+					times[k] = k * OrbitTrajectory.TICK_SECONDS;
+					positions[k] = orbit.position(times[k]);
+				}
+				TrajectoryFile.write(out, times, positions, null);
+			}
+			else {
+				KeyframeTrajectory keyframes = KeyframeTrajectory.load(new File(args[0]));
+				keyframes.save(out);
+				count = TrajectoryFile.open(out).size();
+			}
+			System.out.println(String.format("Wrote %d keyframes to %s (%d bytes) in %.3f s", count, out, out.length(), (System.nanoTime() - startTime) / 1e9));
+		}
+		catch (IOException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.out.println("Build failed: " + e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Usage: TrajectoryFileBuilder <keyframes.txt|orbit:x,y,z> <output.traj> [options]");
+		System.out.println("  keyframes.txt         time,x,y,z or time,x,y,z,gain lines");
+		System.out.println("  orbit:x,y,z           the GUI test orbit from this start position, one keyframe per tick");
+		System.out.println("  --azimuth-rate r      orbit azimuth increment per 10ms, in multiples of pi");
+		System.out.println("  --polar-rate r        orbit polar increment per 10ms, in multiples of pi");
+		System.out.println("  --centre x,y,z        point the orbit circles (default the listener)");
+		System.out.println("  --seconds s           length of the orbit (default 30)");
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+package threedsoundengine;
+
+import java.util.Arrays;
+
+//Spatialises a source over a SpeakerLayout by vector-base amplitude panning. The input is mixed to mono and goes
+//through the same distance model as ThreeDEngine (propagation delay with Doppler, attenuation and air absorption), then
+//out to the speakers with gains looked up once per block from the layout's cached pairs or triangles and ramped per
+//sample, so a moving source pans smoothly. The LFE channel is left silent
+public class VbapRenderer implements SpatialRenderer {
+
+	private static final double INPUT_GAIN = 0.7;
+
+	//Settings come from data when the renderer belongs to the application, otherwise from setParameters and setReverb
+	private Main.ThreadData data;
+	private volatile EngineParameters parameters = EngineParameters.DEFAULTS;
+	private volatile boolean bReverb = false;
+	private volatile boolean bLinearRamps = false;
+	private final SpeakerLayout layout;
+	private final int channels;
+	private final int sampleRate;
+	private final int bufferSize;
+	private final double[] mono;
+	private final double[][] monoBuffer;
+	private final double[][] outBuffer;
+	//Distance: one mono stage, since every speaker gets the same delayed signal
+	private final DistanceStage distanceStage;
+	private double distance = DistanceStage.CRITICAL_DISTANCE;
+	//Speaker gains for this block, ramped from the last block's
+	private final double[] speakerGain;
+	private final ParameterRamp[] speakerRamp;
+	private final double[] panGain;
+	private int hint = 0;
+
+	public VbapRenderer(Main.ThreadData tDataIn, SpeakerLayout layoutIn, int sampleRateIn, int bufferSizeIn, double delayBufferSizeInMs) {
+		this(layoutIn, sampleRateIn, bufferSizeIn, delayBufferSizeInMs);
+		data = tDataIn;
+	}
+
+	public VbapRenderer(SpeakerLayout layoutIn, int sampleRateIn, int bufferSizeIn, double delayBufferSizeInMs) {
+
+		layout = layoutIn;
+		channels = layout.getChannels();
+		sampleRate = sampleRateIn;
+		bufferSize = bufferSizeIn;
+		mono = new double[bufferSize];
+		monoBuffer = new double[][] {mono};
+		outBuffer = new double[channels][bufferSize];
+		distanceStage = new DistanceStage(1, sampleRate, bufferSize, delayBufferSizeInMs);
+
+		//Speaker gains start from silence, as ThreeDEngine's pan gains do, so the first block fades in
+		speakerGain = new double[channels];
+		speakerRamp = new ParameterRamp[channels];
+		for (int i = 0; i < channels; i++) {
+			speakerRamp[i] = new ParameterRamp(sampleRate, 0.0);
+		}
+		panGain = new double[bufferSize];
+	}
+
+	public SpeakerLayout getLayout() {
+		return layout;
+	}
+
+	//Used when there is no ThreadData
+	public void setParameters(EngineParameters parametersIn) {
+		parameters = parametersIn;
+	}
+
+	public void setReverb(boolean bReverbIn) {
+		bReverb = bReverbIn;
+	}
+
+	@Override
+	public void setLinearRamps(boolean bLinear) {
+		bLinearRamps = bLinear;
+	}
+
+	@Override
+	public void reset() {
+		distanceStage.reset();
+		for (int i = 0; i < channels; i++) {
+			speakerRamp[i].reset(0.0);
+		}
+	}
+
+	//As reset, but with the speaker gains already on this direction instead of fading in
+	@Override
+	public void reset(double azimuth, double polar, double distanceIn) {
+		distanceStage.reset();
+		hint = layout.gains(azimuth, polar, speakerGain, hint);
+		for (int i = 0; i < channels; i++) {
+			speakerRamp[i].reset(speakerGain[i]);
+		}
+		distance = distanceIn;
+	}
+
+	@Override
+	public double[][] processDirection(double[][] inputBuffer, double azimuth, double polar) {
+		return processDirection(inputBuffer, azimuth, polar, distance);
+	}
+
+	@Override
+	public double[] getReverbSend() {
+		return distanceStage.getReverbSend();
+	}
+
+	//Returns outBuffer[channels][frames], owned by the renderer and overwritten by the next call
+	@Override
+	public double[][] processDirection(double[][] inputBuffer, double azimuth, double polar, double distanceIn) {
+
+		int frames = inputBuffer[0].length;
+		if (frames > bufferSize) {
+			throw new IllegalArgumentException("VbapRenderer takes blocks of up to " + bufferSize + " frames, not " + frames);
+		}
+		distance = distanceIn;
+		EngineParameters params = data != null ? data.getParameters() : parameters;
+		boolean bReverbOn = data != null ? data.bReverb : bReverb;
+
+		//Mono mix of the input
+		double inputScale = INPUT_GAIN / inputBuffer.length;
+		for (int j = 0; j < frames; j++) { //data
+			double sum = 0.0;
+			for (int i = 0; i < inputBuffer.length; i++) { //channels
+				sum += inputBuffer[i][j];
+			}
+			mono[j] = sum * inputScale;
+		}
+
+		//Control rate: speaker gains, delay and attenuation once per block
+		hint = layout.gains(azimuth, polar, speakerGain, hint);
+		ParameterRamp.Shape shape = bLinearRamps ? ParameterRamp.Shape.LINEAR : params.rampShape;
+		distanceStage.setDistance(distance, sampleRate, params.referenceDistance, shape, bReverbOn, frames);
+		distanceStage.send(monoBuffer, frames);
+
+		//Distance, in place: the block is written to the delay line first, then read back at the propagation delay
+		distanceStage.process(monoBuffer, monoBuffer, null, frames);
+
+		//Panning: speakers that are silent and staying so are just cleared
+		for (int i = 0; i < channels; i++) { //channels
+			ParameterRamp ramp = speakerRamp[i];
+			double[] out = outBuffer[i];
+			double target = speakerGain[i];
+			if (target == 0.0 && Math.abs(ramp.getValue()) < 1e-6) {
+				ramp.reset(0.0);
+				Arrays.fill(out, 0, frames, 0.0);
+				continue;
+			}
+			ramp.setShape(shape);
+			ramp.fill(target, panGain, frames);
+			for (int j = 0; j < frames; j++) { //data
+				out[j] = mono[j] * panGain[j];
+			}
+		}
+
+		return outBuffer;
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+//Keeps a scene of many sources down to a fixed number of rendered voices. Every block the sources are ranked by
+//estimated loudness (gain x distance attenuation x priority) and only the loudest maxVoices are spatialised. The rest
+//are virtual: their input is skipped instead of decoded and their position keeps following the clock, so a voice that
+//is promoted later comes in at the right point and place: a voice that had faded out fully restarts with its renderer
+//cleared and its ramps already on the current direction and distance. Promotion fades a voice in over one block and
+//demotion fades it out over one block. A rendered voice keeps its slot until a contender is HYSTERESIS louder, so voices near the cut do not flap
+public class VoiceManager {
+
+	private static final double HYSTERESIS = 1.25; //About 2dB
+
+	private final int maxVoices;
+	private double[] scores = new double[0];
+	private double[] scratch = new double[0];
+	private volatile int activeVoices, fadingVoices, virtualVoices;
+	private volatile long promotions, demotions;
+	//Totals over the blocks with anything left to play, for the means
+	private volatile long blocks, renderedTotal, virtualTotal;
+
+	public VoiceManager(int maxVoicesIn) {
+		if (maxVoicesIn < 1) throw new IllegalArgumentException("At least one voice is needed, not " + maxVoicesIn);
+		maxVoices = maxVoicesIn;
+	}
+
+	public int getMaxVoices() {
+		return maxVoices;
+	}
+
+	//Ranks the sources and sets which are rendered this block. Runs on the mixer thread after the Scene has placed the
+	//sources and before they render
+	void assign(SceneSource[] sources, int frames) {
+
+		int n = sources.length;
+		if (scores.length != n) {
+			scores = new double[n];
+			scratch = new double[n];
+		}
+		int audible = 0;
+		for (int k = 0; k < n; k++) {
+			SceneSource source = sources[k];
+			double score = source.loudness();
+			if (source.voiceTarget == 1.0) score *= HYSTERESIS;
+			scores[k] = score;
+			if (score > 0.0) audible++;
+		}
+
+		//Everything audible fits, otherwise the cut is at the maxVoices-th loudest
+		double threshold = 0.0;
+		if (audible > maxVoices) {
+			System.arraycopy(scores, 0, scratch, 0, n);
+			threshold = select(scratch, n, maxVoices - 1);
+		}
+		int above = 0;
+		for (int k = 0; k < n; k++) {
+			if (scores[k] > threshold) above++;
+		}
+		//Sources level with the cut take the remaining slots in order
+		int ties = maxVoices - above;
+
+		int active = 0, fading = 0, virtual = 0;
+		long promoted = promotions, demoted = demotions;
+		for (int k = 0; k < n; k++) {
+			SceneSource source = sources[k];
+			boolean bWanted = scores[k] > threshold;
+			if (!bWanted && scores[k] == threshold && threshold > 0.0 && ties > 0) {
+				bWanted = true;
+				ties--;
+			}
+			if (source.bVoiceAssigned) {
+				if (bWanted && source.voiceTarget == 0.0) promoted++;
+				else if (!bWanted && source.voiceTarget == 1.0 && !source.isFinished()) demoted++;
+			}
+			source.setVoice(bWanted, frames);
+			if (source.isFinished()) continue;
+			if (source.getVoiceFade() != null) fading++;
+			else if (source.bRendered) active++;
+			else virtual++;
+		}
+		activeVoices = active;
+		fadingVoices = fading;
+		virtualVoices = virtual;
+		promotions = promoted;
+		demotions = demoted;
+		if (active + fading + virtual > 0) {
+			blocks++;
+			renderedTotal += active + fading;
+			virtualTotal += virtual;
+		}
+	}
+
+	//The k-th largest (from 0) of values[0..n), partially reordering them
+	private static double select(double[] values, int n, int k) {
+		int lo = 0, hi = n - 1;
+		while (lo < hi) {
+			double pivot = values[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (values[i] > pivot) i++;
+				while (values[j] < pivot) j--;
+				if (i <= j) {
+					double swap = values[i];
+					values[i] = values[j];
+					values[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) hi = j;
+			else if (k >= i) lo = i;
+			else return values[k];
+		}
+		return values[k];
+	}
+
+	//Voices fully rendered in the last block
+	public int getActiveVoices() {
+		return activeVoices;
+	}
+
+	//Voices rendered while fading in or out in the last block
+	public int getFadingVoices() {
+		return fadingVoices;
+	}
+
+	//Unfinished sources that were skipped in the last block
+	public int getVirtualVoices() {
+		return virtualVoices;
+	}
+
+	//Mean voices rendered per block, fading ones included
+	public double getMeanRenderedVoices() {
+		return blocks == 0 ? 0.0 : (double)renderedTotal / blocks;
+	}
+
+	public double getMeanVirtualVoices() {
+		return blocks == 0 ? 0.0 : (double)virtualTotal / blocks;
+	}
+
+	public long getPromotions() {
+		return promotions;
+	}
+
+	public long getDemotions() {
+		return demotions;
+	}
+
+	public String getSummary() {
+		return String.format("Voices (%d slots): %d active, %d fading, %d virtual in the last block, %.1f rendered and %.1f virtual on average, %d promotions, %d demotions",
+				maxVoices, activeVoices, fadingVoices, virtualVoices, getMeanRenderedVoices(), getMeanVirtualVoices(), promotions, demotions);
+	}
+}
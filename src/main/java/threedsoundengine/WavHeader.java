@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+
+package threedsoundengine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import javax.sound.sampled.AudioFormat;
+
+//Canonical 44 byte RIFF/WAVE header, or the 68 byte WAVE_FORMAT_EXTENSIBLE one that multichannel files need to say
+//which speaker each channel is for
+public class WavHeader {
+
+	public static final int SIZE = 44;
+	public static final int EXTENSIBLE_SIZE = 68;
+	public static final int RIFF_SIZE_OFFSET = 4;
+	public static final int DATA_SIZE_OFFSET = 40;
+	private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+	//KSDATAFORMAT_SUBTYPE GUID after its first two bytes, which hold the format tag
+	private static final byte[] SUBTYPE_GUID = {0x00, 0x00, 0x00, 0x00, 0x10, 0x00, (byte)0x80, 0x00, 0x00, (byte)0xAA, 0x00, 0x38, (byte)0x9B, 0x71};
+	
+	public static byte[] build(AudioFormat format, long dataLength) {
+		
+		ByteBuffer header = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(new byte[] {'R', 'I', 'F', 'F'});// 0-4 ChunkId always RIFF
+		header.putInt(riffSize(dataLength));// 5-8 ChunkSize always audio-length +header-length(44) - 8
+		header.put(new byte[] {'W', 'A', 'V', 'E'});// 9-12 Format always WAVE
+		header.put(new byte[] {'f', 'm', 't', ' '});// 13-16 Subchunk1 ID always "fmt " with trailing whitespace
+		header.putInt(16);// 17-20 Subchunk1 Size always 16
+		header.putShort((short)(format.getEncoding().equals(AudioFormat.Encoding.PCM_FLOAT) ? 3 : 1));// 21-22 Audio-Format 1 for PCM PulseAudio, 3 for IEEE float
+		header.putShort((short)format.getChannels());// 23-24 Num-Channels 1 for mono, 2 for stereo
+		header.putInt((int)format.getSampleRate());// 25-28 Sample-Rate
+		header.putInt((int)(format.getSampleRate() * format.getFrameSize()));// 29-32 Byte Rate
+		header.putShort((short)format.getFrameSize());// 33-34 Block Align
+		header.putShort((short)format.getSampleSizeInBits());// 35-36 Bits-Per-Sample
+		header.put(new byte[] {'d', 'a', 't', 'a'});// 37-40 Subchunk2 ID always data
+		header.putInt(dataSize(dataLength));// 41-44 Subchunk 2 Size audio-length
+		
+		return header.array();
+	}
+	
+	//Extensible when there are more than two channels or a channel mask, otherwise as build(format, dataLength)
+	public static byte[] build(AudioFormat format, long dataLength, int channelMask) {
+		
+		int size = size(format, channelMask);
+		if (size == SIZE) return build(format, dataLength);
+		int tag = format.getEncoding().equals(AudioFormat.Encoding.PCM_FLOAT) ? 3 : 1;
+		ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(new byte[] {'R', 'I', 'F', 'F'});
+		header.putInt(riffSize(dataLength, size));
+		header.put(new byte[] {'W', 'A', 'V', 'E'});
+		header.put(new byte[] {'f', 'm', 't', ' '});
+		header.putInt(40);// fmt chunk size with the extension
+		header.putShort((short)FORMAT_EXTENSIBLE);
+		header.putShort((short)format.getChannels());
+		header.putInt((int)format.getSampleRate());
+		header.putInt((int)(format.getSampleRate() * format.getFrameSize()));
+		header.putShort((short)format.getFrameSize());
+		header.putShort((short)format.getSampleSizeInBits());
+		header.putShort((short)22);// extension size
+		header.putShort((short)format.getSampleSizeInBits());// valid bits per sample
+		header.putInt(channelMask);// speaker of each channel, 0 if unassigned
+		header.putShort((short)tag);// sub-format GUID, starting with the format tag
+		header.put(SUBTYPE_GUID);
+		header.put(new byte[] {'d', 'a', 't', 'a'});
+		header.putInt(dataSize(dataLength));
+		
+		return header.array();
+	}
+	
+	public static int size(AudioFormat format, int channelMask) {
+		return format.getChannels() > 2 || channelMask != 0 ? EXTENSIBLE_SIZE : SIZE;
+	}
+	
+	//Sizes are unsigned 32-bit in the file, so clamp rather than wrap for very long renders
+	public static int riffSize(long dataLength) {
+		return riffSize(dataLength, SIZE);
+	}
+	
+	public static int riffSize(long dataLength, int headerSize) {
+		return (int)Math.min(dataLength + headerSize - 8, 0xffffffffL);
+	}
+	
+	public static int dataSize(long dataLength) {
+		return (int)Math.min(dataLength, 0xffffffffL);
+	}
+}
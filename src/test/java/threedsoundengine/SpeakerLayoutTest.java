@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+package threedsoundengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SpeakerLayoutTest {
+
+	//The built-in layouts and their speaker angles in degrees (azimuth left positive, elevation up), channels in WAVE order
+	private static final String[][] LAYOUTS = {
+		{"stereo", "FL 30 0\nFR -30 0"},
+		{"quad", "FL 45 0\nFR -45 0\nBL 135 0\nBR -135 0"},
+		{"5.1", "FL 30 0\nFR -30 0\nFC 0 0\nLFE\nSL 110 0\nSR -110 0"},
+		{"7.1", "FL 30 0\nFR -30 0\nFC 0 0\nLFE\nBL 150 0\nBR -150 0\nSL 90 0\nSR -90 0"},
+		{"7.1.4", "FL 30 0\nFR -30 0\nFC 0 0\nLFE\nBL 150 0\nBR -150 0\nSL 90 0\nSR -90 0\nTFL 45 45\nTFR -45 45\nTBL 135 45\nTBR -135 45"},
+	};
+	private static final double TOLERANCE = 1e-9;
+
+	//SpatialRenderer angles of a speaker direction, the inverse of the layout's own conversion
+	private static double[] angles(double azimuthDegrees, double elevationDegrees) {
+		double azimuth = Math.toRadians(azimuthDegrees), elevation = Math.toRadians(elevationDegrees);
+		double x = -Math.cos(elevation) * Math.sin(azimuth);
+		double y = Math.cos(elevation) * Math.cos(azimuth);
+		double z = Math.sin(elevation);
+		return new double[] {ProcessAudio.azimuth(x, y), Math.acos(Math.max(-1.0, Math.min(1.0, z)))};
+	}
+
+	@Test
+	void speakerDirectionGivesThatSpeakerOnly() throws IOException {
+		for (String[] builtIn : LAYOUTS) {
+			SpeakerLayout layout = SpeakerLayout.forName(builtIn[0]);
+			String[] lines = builtIn[1].split("\n");
+			assertEquals(lines.length, layout.getChannels());
+			double[] gains = new double[layout.getChannels()];
+			for (int channel = 0; channel < lines.length; channel++) {
+				String[] fields = lines[channel].split(" ");
+				if (layout.isLfe(channel)) continue;
+				double[] direction = angles(Double.parseDouble(fields[1]), Double.parseDouble(fields[2]));
+				layout.gains(direction[0], direction[1], gains, 0);
+				for (int i = 0; i < gains.length; i++) {
+					if (layout.isLfe(i)) assertEquals(0.0, gains[i], builtIn[0] + " LFE");
+					else assertEquals(i == channel ? 1.0 : 0.0, gains[i], TOLERANCE, builtIn[0] + " " + fields[0] + " on " + layout.getLabel(i));
+				}
+			}
+		}
+	}
+
+	@Test
+	void powerIsNormalised() throws IOException {
+		Random random = new Random(1);
+		for (String[] builtIn : LAYOUTS) {
+			SpeakerLayout layout = SpeakerLayout.forName(builtIn[0]);
+			double[] gains = new double[layout.getChannels()];
+			int hint = 0;
+			for (int n = 0; n < 10000; n++) {
+				//Uniform over the sphere
+				double azimuth = random.nextDouble() * 2 * Math.PI;
+				double polar = Math.acos(1.0 - (2.0 * random.nextDouble()));
+				hint = layout.gains(azimuth, polar, gains, hint);
+				double power = 0.0;
+				for (int i = 0; i < gains.length; i++) {
+					assertTrue(gains[i] >= 0.0, builtIn[0] + " negative gain");
+					power += gains[i] * gains[i];
+				}
+				assertEquals(1.0, power, TOLERANCE, builtIn[0] + " power");
+			}
+		}
+	}
+
+	@Test
+	void heightLayoutUsesImaginaryBottomSpeaker() throws IOException {
+		SpeakerLayout layout = SpeakerLayout.forName("7.1.4");
+		//The hull of the 11 real speakers and the imaginary one below the listener
+		assertEquals(20, layout.getSetCount());
+		double[] gains = new double[layout.getChannels()];
+		//Straight down, which only the imaginary speaker covers: its gain is shared equally by the ear-level ring
+		layout.gains(0.0, Math.PI, gains, 0);
+		double ring = 1.0 / Math.sqrt(7.0);
+		for (int i = 0; i < gains.length; i++) {
+			boolean bHeight = layout.getLabel(i).startsWith("T");
+			assertEquals(layout.isLfe(i) || bHeight ? 0.0 : ring, gains[i], TOLERANCE, layout.getLabel(i));
+		}
+	}
+
+	@Test
+	void waveMask() throws IOException {
+		assertEquals(0x63F, SpeakerLayout.waveMask(new String[] {"FL", "FR", "FC", "LFE", "BL", "BR", "SL", "SR"}));
+		assertEquals(0x63F, SpeakerLayout.forName("7.1").getChannelMask());
+		assertEquals(0, SpeakerLayout.waveMask(new String[] {"FR", "FL"}));
+		assertEquals(0, SpeakerLayout.parse("swapped", new StringReader("FR -30 0\nFL 30 0")).getChannelMask());
+	}
+}
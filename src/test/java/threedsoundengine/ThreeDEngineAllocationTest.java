@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+package threedsoundengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+//processDirection runs on the audio thread, so once warmed up it must not allocate anything per block
+class ThreeDEngineAllocationTest {
+
+	private static final int SAMPLE_RATE = 48000;
+	private static final int BUFFER_SIZE = 512;
+	private static final int WARM_UP_BLOCKS = 2000;
+	private static final int BLOCKS = 1000;
+
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+	private ThreeDEngine engine;
+	private double[][] in;
+	private double azimuth;
+
+	@BeforeEach
+	void setUp() {
+		threads.setThreadAllocatedMemoryEnabled(true);
+		engine = new ThreeDEngine(2, SAMPLE_RATE, BUFFER_SIZE, 5000.0, 5.0);
+		engine.setReverb(true);
+		in = new double[2][BUFFER_SIZE];
+		for (int j = 0; j < BUFFER_SIZE; j++) {
+			in[0][j] = Math.sin(j * 0.05);
+			in[1][j] = Math.cos(j * 0.03);
+		}
+	}
+
+	@Test
+	void distanceOverloadDoesNotAllocate() {
+		for (int n = 0; n < WARM_UP_BLOCKS; n++) {
+			renderWithDistance();
+		}
+		long before = threads.getCurrentThreadAllocatedBytes();
+		for (int n = 0; n < BLOCKS; n++) {
+			renderWithDistance();
+		}
+		assertEquals(0, threads.getCurrentThreadAllocatedBytes() - before, "bytes allocated over " + BLOCKS + " blocks");
+	}
+
+	@Test
+	void directionOverloadDoesNotAllocate() {
+		for (int n = 0; n < WARM_UP_BLOCKS; n++) {
+			renderDirection();
+		}
+		long before = threads.getCurrentThreadAllocatedBytes();
+		for (int n = 0; n < BLOCKS; n++) {
+			renderDirection();
+		}
+		assertEquals(0, threads.getCurrentThreadAllocatedBytes() - before, "bytes allocated over " + BLOCKS + " blocks");
+	}
+
+	//A source sweeping round and up and down, moving in and out, so every parameter ramps
+	private void renderWithDistance() {
+		azimuth = (azimuth + 0.01) % (2 * Math.PI);
+		engine.processDirection(in, azimuth, 0.5 * Math.PI * (1.0 + Math.sin(azimuth)), 2.0 + Math.cos(azimuth));
+	}
+
+	private void renderDirection() {
+		azimuth = (azimuth + 0.01) % (2 * Math.PI);
+		engine.processDirection(in, azimuth, 0.5 * Math.PI * (1.0 + Math.sin(azimuth)));
+	}
+}
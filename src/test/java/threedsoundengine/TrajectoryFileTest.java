@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2025 James G. Stanier
+ *
+ * This file is part of ThreeDSoundEngine.
+ *
+ * This software is dual-licensed under:
+ *   1. The GNU General Public License v3.0 (GPLv3)
+ *   2. A commercial license (contact j.stanier766(at)gmail.com for details)
+ *
+ * You may use this file under the terms of the GPLv3 as published by
+ * the Free Software Foundation. For proprietary/commercial use,
+ * please see the LICENSE-COMMERCIAL file or contact the copyright holder.
+ */
+package threedsoundengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+//Keyframes at whole seconds along a straight line, which the Catmull-Rom spline reproduces exactly, so the expected
+//position at any time is known
+class TrajectoryFileTest {
+
+	private static final int KEYFRAMES = 100;
+	private static final double TOLERANCE = 1e-9;
+
+	@TempDir
+	File dir;
+	private File file;
+	private double[] times;
+	private Vector3D[] positions;
+	private double[] gains;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		times = new double[KEYFRAMES];
+		positions = new Vector3D[KEYFRAMES];
+		gains = new double[KEYFRAMES];
+		for (int k = 0; k < KEYFRAMES; k++) {
+			times[k] = k;
+			positions[k] = line(k);
+			gains[k] = 0.5;
+		}
+		file = new File(dir, "line.traj");
+		TrajectoryFile.write(file, times, positions, gains);
+	}
+
+	private static Vector3D line(double t) {
+		return Vector3D.of(t, 2.0 * t, -t);
+	}
+
+	private static void assertPosition(Vector3D expected, Vector3D actual) {
+		assertEquals(expected.getX(), actual.getX(), TOLERANCE);
+		assertEquals(expected.getY(), actual.getY(), TOLERANCE);
+		assertEquals(expected.getZ(), actual.getZ(), TOLERANCE);
+	}
+
+	@Test
+	void writeAndOpenRoundTrip() throws IOException {
+		TrajectoryFile trajectory = TrajectoryFile.open(file);
+		assertEquals(KEYFRAMES, trajectory.size());
+		assertEquals(KEYFRAMES - 1, trajectory.getDuration());
+		assertTrue(trajectory.hasGain());
+		assertInstanceOf(TrajectoryFile.class, TrajectoryFile.load(file));
+
+		TrajectoryFile.write(file, times, positions, null);
+		trajectory = TrajectoryFile.open(file);
+		assertFalse(trajectory.hasGain());
+		assertEquals(1.0, trajectory.gain(10.0));
+	}
+
+	@Test
+	void passesThroughKeyframes() throws IOException {
+		TrajectoryFile trajectory = TrajectoryFile.open(file);
+		for (int k = 0; k < KEYFRAMES; k++) {
+			assertPosition(positions[k], trajectory.position(times[k]));
+			assertEquals(gains[k], trajectory.gain(times[k]), TOLERANCE);
+		}
+	}
+
+	@Test
+	void clampsAtBothEnds() throws IOException {
+		TrajectoryFile trajectory = TrajectoryFile.open(file);
+		assertPosition(positions[0], trajectory.position(-5.0));
+		assertPosition(positions[KEYFRAMES - 1], trajectory.position(KEYFRAMES + 5.0));
+		assertEquals(gains[0], trajectory.gain(-5.0), TOLERANCE);
+		assertEquals(gains[KEYFRAMES - 1], trajectory.gain(KEYFRAMES + 5.0), TOLERANCE);
+	}
+
+	@Test
+	void followsPlaybackAndSeeks() throws IOException {
+		TrajectoryFile trajectory = TrajectoryFile.open(file);
+		//Playback: small steps forwards, a segment at a time or less
+		for (double t = 0.0; t < 10.0; t += 0.3) {
+			assertPosition(line(t), trajectory.position(t));
+		}
+		//Seeks forwards past the short walk, backwards, and back to the ends
+		double[] seeks = {57.25, 57.5, 12.75, 98.5, 0.125, 63.0, 3.5};
+		for (double t : seeks) {
+			assertPosition(line(t), trajectory.position(t));
+		}
+	}
+
+	@Test
+	void rejectsBadKeyframes() {
+		assertThrows(IllegalArgumentException.class, () -> TrajectoryFile.write(file, new double[0], new Vector3D[0], null));
+		assertThrows(IllegalArgumentException.class, () -> TrajectoryFile.write(file, new double[] {1.0, 0.0}, new Vector3D[] {Vector3D.ZERO, Vector3D.ZERO}, null));
+	}
+}